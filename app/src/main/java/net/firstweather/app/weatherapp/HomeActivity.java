@@ -29,18 +29,25 @@ import android.widget.Toast;
 
 import net.firstweather.app.weatherapp.data.Channel;
 import net.firstweather.app.weatherapp.data.Condition;
+import net.firstweather.app.weatherapp.data.Dates;
 import net.firstweather.app.weatherapp.data.LocationResult;
 import net.firstweather.app.weatherapp.data.Units;
 import net.firstweather.app.weatherapp.fragments.WeatherConditionFragment;
 import net.firstweather.app.weatherapp.listener.GeocodingServiceListener;
-import net.firstweather.app.weatherapp.listener.WeatherServiceListener;
+import net.firstweather.app.weatherapp.prefetch.PrefetchScheduler;
+import net.firstweather.app.weatherapp.prefetch.PrefetchStats;
+import net.firstweather.app.weatherapp.text.Localization;
+import net.firstweather.app.weatherapp.text.Translations;
+import net.firstweather.app.weatherapp.ui.WeatherIcons;
+import net.firstweather.app.weatherapp.service.AndroidWeatherCacheService;
+import net.firstweather.app.weatherapp.service.ForecastController;
 import net.firstweather.app.weatherapp.service.WeatherCacheService;
 import net.firstweather.app.weatherapp.service.GoogleMapsGeocodingService;
-import net.firstweather.app.weatherapp.service.YahooWeatherService;
+import net.firstweather.app.weatherapp.service.ReverseGeocodingCache;
+import net.firstweather.app.weatherapp.task.CancellationToken;
 
-import java.util.Objects;
 
-public class HomeActivity extends AppCompatActivity implements WeatherServiceListener, GeocodingServiceListener, LocationListener {
+public class HomeActivity extends AppCompatActivity implements ForecastController.Screen, GeocodingServiceListener, LocationListener {
 
     public static int GET_WEATHER_FROM_CURRENT_LOCATION = 0x00001;
 
@@ -50,17 +57,20 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
     private TextView locationTextView;
     private TextView dataTextView;
 
-    private YahooWeatherService weatherService;
+    private ForecastController forecastController;
     private GoogleMapsGeocodingService geocodingService;
     private WeatherCacheService cacheService;
 
     private ProgressDialog loadingDialog;
 
-    // weather service fail flag
-    private boolean weatherServicesHasFailed = false;
+    // cancelled in onStop so no background result reaches a stopped screen
+    private CancellationToken lifecycle;
 
     private SharedPreferences preferences = null;
 
+    // reused for the date label, so redrawing the screen does not allocate
+    private final StringBuilder dateText = new StringBuilder(32);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -74,11 +84,11 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
 
         preferences = PreferenceManager.getDefaultSharedPreferences(this);
 
-        weatherService = new YahooWeatherService(this);
-        weatherService.setTemperatureUnit(preferences.getString(getString(R.string.pref_temperature_unit), null));
+        geocodingService = new GoogleMapsGeocodingService(this, ReverseGeocodingCache.getInstance(getFilesDir()));
+        cacheService = new AndroidWeatherCacheService(this);
+        forecastController = new ForecastController(WeatherApplication.getForecastFeed(this), cacheService, this);
 
-        geocodingService = new GoogleMapsGeocodingService(this);
-        cacheService = new WeatherCacheService(this);
+        PrefetchScheduler.update(this);
 
         if (preferences.getBoolean(getString(R.string.pref_needs_setup), true)) {
             startSettingsActivity();
@@ -89,10 +99,13 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
     protected void onStart() {
         super.onStart();
 
+        lifecycle = new CancellationToken();
+        geocodingService.setCancellationToken(lifecycle);
+        cacheService.setCancellationToken(lifecycle);
+
         loadingDialog = new ProgressDialog(this);
         loadingDialog.setMessage(getString(R.string.loading));
         loadingDialog.setCancelable(false);
-        loadingDialog.show();
 
         String location = null;
 
@@ -109,10 +122,25 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
         }
 
         if (location != null) {
-            weatherService.refreshWeather(location);
+            refreshWeather(location);
+        } else if (forecastController.getDisplayedChannel() == null) {
+            loadingDialog.show();
         }
     }
 
+    private void refreshWeather(String location) {
+        forecastController.show(location, preferences.getString(getString(R.string.pref_temperature_unit), null));
+    }
+
+    @Override
+    protected void onStop() {
+        lifecycle.cancel();
+        forecastController.stop();
+        loadingDialog.dismiss();
+
+        super.onStop();
+    }
+
     private void getWeatherFromCurrentLocation() {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{
@@ -188,43 +216,48 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
     }
 
     @Override
-    public void serviceSuccess(Channel channel) {
-        loadingDialog.hide();
-
+    public void showChannel(Channel channel) {
         Condition condition = channel.getItem().getCondition();
         Units units = channel.getUnits();
 
-        int weatherIconImageResource = getResources().getIdentifier("icon_" + condition.getCode(), "drawable", getPackageName());
-
-        weatherIconImageView.setImageResource(weatherIconImageResource);
+        WeatherIcons.show(weatherIconImageView, condition.getCode());
         temperatureTextView.setText(getString(R.string.temperature_output, condition.getTemperature(), units.getTemperature()));
-        conditionTextView.setText(SpolszczenieWarunkowAtmosferycznych(condition.getDescription()));
-        locationTextView.setText(SpolszczenieMiast(channel.getLocation()));
-        dataTextView.setText(plMiesiac(ZmianaDaty(condition.getDate())));
+        Translations translations = Localization.get(this);
+        conditionTextView.setText(translations.condition(condition.getCode(), condition.getDescription()));
+        locationTextView.setText(translations.city(channel.getLocation()));
+
+        if (condition.getEpochDay() == Dates.UNKNOWN) {
+            dataTextView.setText(condition.getDate());
+        } else {
+            dateText.setLength(0);
+            dataTextView.setText(translations.getDateFormatter().format(condition.getEpochDay(), dateText));
+        }
+    }
 
-        cacheService.save(channel);
+    @Override
+    public void showLoading() {
+        loadingDialog.show();
     }
 
     @Override
-    public void serviceFailure(Exception exception) {
-        // display error if this is the second failure
-        if (weatherServicesHasFailed) {
-            loadingDialog.hide();
-            Toast.makeText(this, exception.getMessage(), Toast.LENGTH_LONG).show();
-        } else {
-            // error doing reverse geocoding, load weather data from cache
-            weatherServicesHasFailed = true;
-            // OPTIONAL: let the user know an error has occurred then fallback to the cached data
-            Toast.makeText(this, exception.getMessage(), Toast.LENGTH_SHORT).show();
+    public void hideLoading() {
+        loadingDialog.hide();
+    }
 
-            cacheService.load(this);
-        }
+    @Override
+    public void showError(String message, boolean nothingToShow) {
+        Toast.makeText(this, message, nothingToShow ? Toast.LENGTH_LONG : Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onOpened(boolean fresh) {
+        PrefetchStats.recordOpen(this, fresh);
     }
 
     @Override
     public void geocodeSuccess(LocationResult location) {
-        // completed geocoding successfully
-        weatherService.refreshWeather(location.getAddress());
+        // completed geocoding successfully, a new location replaces what is on screen
+        refreshWeather(location.getAddress());
 
         SharedPreferences.Editor editor = preferences.edit();
         editor.putString(getString(R.string.pref_cached_location), location.getAddress());
@@ -234,12 +267,12 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
     @Override
     public void geocodeFailure(Exception exception) {
         // GeoCoding failed, try loading weather data from the cache
-        cacheService.load(this);
+        forecastController.showFailure(preferences.getString(getString(R.string.pref_cached_location), null), exception);
     }
 
     @Override
     public void onLocationChanged(Location location) {
-        geocodingService.refreshLocation(location);
+        geocodingService.refreshLocation(location.getLatitude(), location.getLongitude());
     }
 
     @Override
@@ -263,234 +296,4 @@ public class HomeActivity extends AppCompatActivity implements WeatherServiceLis
         startActivity(intent);
     }
 
-    public String SpolszczenieWarunkowAtmosferycznych(String angielskaNazwa){
-        switch (angielskaNazwa){
-            case("Tornado"):
-                return "Tornado";
-
-            case("Tropical Storm"):
-                return "Burza tropikalna";
-
-            case("Hurricane"):
-                return "Huragan";
-
-            case("Severe Thunderstorms"):
-                return "Gwałtowne burze";
-
-            case("Thunderstorms"):
-                return "Burze";
-
-            case("Mixed Rain And Snow"):
-                return "Deszcz ze śniegiem";
-
-            case("Mixed Rain And Sleet"):
-                return "Deszcz ze śniegiem";
-
-            case("Mixed Snow And Sleet"):
-                return "Deszcz ze śniegiem";
-
-            case("Freezing Drizzle"):
-                return "Marznąca mżawka";
-
-            case("Drizzle"):
-                return "Mżawka";
-
-            case("Freezing Rain"):
-                return "Marznący deszcz";
-
-            case("Showers"):
-                return "Przelotny deszcz";
-
-            case("Snow Flurries"):
-                return "Śnieżyca";
-
-            case("Light Snow Showers"):
-                return "Przelotne opady śniegu";
-
-            case("Blowing Snow"):
-                return "Śnieg z wiatrem";
-
-            case("Snow"):
-                return "Śnieg";
-
-            case("Rain"):
-                return "Deszcz";
-
-            case("Hail"):
-                return "Grad";
-
-            case("Sleet"):
-                return "Śnieg z deszczem";
-
-            case("Dust"):
-                return "Zawierucha";
-
-            case("Foggy"):
-                return "Mgła";
-
-            case("Haze"):
-                return "Mgła";
-
-            case("Smoky"):
-                return "Mgliście";
-
-            case("Blustery"):
-                return "Wietrznie";
-
-            case("Windy"):
-                return "Wietrznie";
-
-            case("Cold"):
-                return "Zimno";
-
-            case("Cloudy"):
-                return "Pochmurnie";
-
-            case("Mostly Cloudy"):
-                return "Pochmurnie";
-
-            case("Partly Cloudy"):
-                return "Częściowe zachmurzenie";
-
-            case("Clear"):
-                return "Bezchmurnie";
-
-            case("Sunny"):
-                return "Słonecznie";
-
-            case("Fair"):
-                return "Bezchmurnie";
-
-            case("Mixed Rain And Hail"):
-                return "Deszcz z gradem";
-
-            case("Hot"):
-                return "Gorąco";
-
-            case("Isolated Thunderstorms"):
-                return "Możliwe burze";
-
-            case("Scattered Thunderstorms"):
-                return "Przelotne burze";
-
-            case("Scattered Showers"):
-                return "Przelotne opady";
-
-            case("Scattered Snow Showers"):
-                return "Przelotne opady śniegu";
-
-            case("Heavy Snow"):
-                return "Mocne opady śniegu";
-
-            case("Thundershowers"):
-                return "Wieczorne burze";
-
-            case("Snow Showers"):
-                return "Opady śniegu";
-
-            case("Isolated Thundershowers"):
-                return "Możliwe opady śniegu";
-
-            case("Mostly Sunny"):
-                return "Słonecznie";
-
-
-            case("Not Available"):
-                return "Brak danych";
-
-        }
-
-        return angielskaNazwa;
-    }
-
-    public String SpolszczenieDniTygodnia(String angielskaNazwa){
-        switch (angielskaNazwa){
-            case("Mon"):
-                return "Pon.";
-
-            case("Tue"):
-                return "Wt.";
-
-            case("Wed"):
-                return "Śr";
-
-            case("Thu"):
-                return "Czw.";
-
-            case("Fri"):
-                return "Pt.";
-
-            case("Sat"):
-                return "Sob.";
-
-            case("Sun"):
-                return "Nd.";
-        }
-
-        return angielskaNazwa;
-    }
-
-    public String plMiesiac(String dane) { //02 Jun 2017
-        String dzien = "";
-        String miesiac = "";
-        String rok = "";
-
-        for (int i = 0; i<dane.length(); i++) {
-            if(i<2) dzien += dane.charAt(i);
-            if(i>2 && i<6) miesiac += dane.charAt(i);
-            if(i>6 && i<dane.length()) rok += dane.charAt(i);
-        }
-
-        if (Objects.equals(miesiac, "Jun")){
-            miesiac = "Czerwiec";
-        }
-
-        return dzien + " " + miesiac + " " +rok;
-
-    }
-
-
-    public String ZmianaDaty(String angielskaNazwa) {
-        String tmp ="";
-        for (int i = 5; i < 16; i++ ) {
-          tmp += angielskaNazwa.charAt(i) ;
-        }
-
-        return tmp;
-    }
-
-    public String SpolszczenieMiast(String angielskaNazwa) {
-        switch (angielskaNazwa) {
-            case ("Warsaw"):
-                return "Warszawa";
-
-            case ("Krakow"):
-                return "Kraków";
-
-            case ("Wroclaw"):
-                return "Wrocław";
-
-            case ("Lodz"):
-                return "Łódź";
-
-            case ("Poznan"):
-                return "Poznań";
-
-            case ("Gdansk"):
-                return "Gdańsk";
-
-            case ("Bialystok"):
-                return "Białystok";
-
-            case ("Torun"):
-                return "Toruń";
-
-            case ("Ciemna Dabrowa"):
-                return "Ciemna Dąbrowa";
-        }
-        return angielskaNazwa;
-    }
-
-
-
 }
@@ -0,0 +1,72 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp;
+
+import android.app.Application;
+import android.content.Context;
+
+import net.firstweather.app.weatherapp.service.AndroidWeatherCacheService;
+import net.firstweather.app.weatherapp.service.ForecastFeed;
+import net.firstweather.app.weatherapp.service.ForecastStore;
+import net.firstweather.app.weatherapp.service.WeatherCacheService;
+import net.firstweather.app.weatherapp.service.WeatherService;
+import net.firstweather.app.weatherapp.service.WoeidIndex;
+import net.firstweather.app.weatherapp.service.YahooWeatherProvider;
+import net.firstweather.app.weatherapp.task.MainThreadExecutor;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+public class WeatherApplication extends Application {
+
+    // memory tier of every cache service, so screens and the prefetch share parsed forecasts
+    private final ForecastStore forecastStore = WeatherCacheService.newMemory();
+
+    // shared by every screen and the prefetch, so they see each other's refreshes
+    private ForecastFeed forecastFeed;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // before any activity, receiver or service starts a task
+        TaskScheduler.getInstance().setCallbackExecutor(new MainThreadExecutor());
+    }
+
+    public static ForecastStore getForecastStore(Context context) {
+        return ((WeatherApplication) context.getApplicationContext()).forecastStore;
+    }
+
+    public static ForecastFeed getForecastFeed(Context context) {
+        WeatherApplication application = (WeatherApplication) context.getApplicationContext();
+
+        synchronized (application) {
+            if (application.forecastFeed == null) {
+                application.forecastFeed = new ForecastFeed(
+                        new WeatherService(new YahooWeatherProvider(WoeidIndex.getInstance(application.getFilesDir()))),
+                        new AndroidWeatherCacheService(application));
+            }
+            return application.forecastFeed;
+        }
+    }
+}
@@ -27,31 +27,37 @@ import android.widget.Toast;
 import net.firstweather.app.weatherapp.data.Channel;
 import net.firstweather.app.weatherapp.data.Condition;
 import net.firstweather.app.weatherapp.data.LocationResult;
-import net.firstweather.app.weatherapp.data.Units;
 import net.firstweather.app.weatherapp.fragments.WeatherConditionFragment;
 import net.firstweather.app.weatherapp.listener.GeocodingServiceListener;
-import net.firstweather.app.weatherapp.listener.WeatherServiceListener;
+import net.firstweather.app.weatherapp.service.AndroidWeatherCacheService;
+import net.firstweather.app.weatherapp.service.ForecastController;
 import net.firstweather.app.weatherapp.service.GoogleMapsGeocodingService;
+import net.firstweather.app.weatherapp.service.ReverseGeocodingCache;
 import net.firstweather.app.weatherapp.service.WeatherCacheService;
-import net.firstweather.app.weatherapp.service.YahooWeatherService;
+import net.firstweather.app.weatherapp.text.Localization;
+import net.firstweather.app.weatherapp.task.CancellationToken;
 
-public class Week extends AppCompatActivity implements WeatherServiceListener, GeocodingServiceListener, LocationListener {
+public class Week extends AppCompatActivity implements ForecastController.Screen, GeocodingServiceListener, LocationListener {
 
     public static int GET_WEATHER_FROM_CURRENT_LOCATION = 0x00001;
 
+    private static final int[] FORECAST_VIEWS = {
+            R.id.forecast_0, R.id.forecast_1, R.id.forecast_2, R.id.forecast_3, R.id.forecast_4, R.id.forecast_5, R.id.forecast_6
+    };
+
     private ImageView weatherIconImageView;
     private TextView temperatureTextView;
     private TextView conditionTextView;
     private TextView locationTextView;
 
-    private YahooWeatherService weatherService;
+    private ForecastController forecastController;
     private GoogleMapsGeocodingService geocodingService;
     private WeatherCacheService cacheService;
 
     private ProgressDialog loadingDialog;
 
-    // weather service fail flag
-    private boolean weatherServicesHasFailed = false;
+    // cancelled in onStop so no background result reaches a stopped screen
+    private CancellationToken lifecycle;
 
     private SharedPreferences preferences = null;
 
@@ -64,11 +70,9 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
 
         preferences = PreferenceManager.getDefaultSharedPreferences(this);
 
-        weatherService = new YahooWeatherService(this);
-        weatherService.setTemperatureUnit(preferences.getString(getString(R.string.pref_temperature_unit), null));
-
-        geocodingService = new GoogleMapsGeocodingService(this);
-        cacheService = new WeatherCacheService(this);
+        geocodingService = new GoogleMapsGeocodingService(this, ReverseGeocodingCache.getInstance(getFilesDir()));
+        cacheService = new AndroidWeatherCacheService(this);
+        forecastController = new ForecastController(WeatherApplication.getForecastFeed(this), cacheService, this);
 
         if (preferences.getBoolean(getString(R.string.pref_needs_setup), true)) {
             startSettingsActivity();
@@ -79,10 +83,13 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
     protected void onStart() {
         super.onStart();
 
+        lifecycle = new CancellationToken();
+        geocodingService.setCancellationToken(lifecycle);
+        cacheService.setCancellationToken(lifecycle);
+
         loadingDialog = new ProgressDialog(this);
         loadingDialog.setMessage(getString(R.string.loading));
         loadingDialog.setCancelable(false);
-        loadingDialog.show();
 
         String location = null;
 
@@ -99,10 +106,25 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
         }
 
         if (location != null) {
-            weatherService.refreshWeather(location);
+            refreshWeather(location);
+        } else if (forecastController.getDisplayedChannel() == null) {
+            loadingDialog.show();
         }
     }
 
+    private void refreshWeather(String location) {
+        forecastController.show(location, preferences.getString(getString(R.string.pref_temperature_unit), null));
+    }
+
+    @Override
+    protected void onStop() {
+        lifecycle.cancel();
+        forecastController.stop();
+        loadingDialog.dismiss();
+
+        super.onStop();
+    }
+
     private void getWeatherFromCurrentLocation() {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{
@@ -178,55 +200,50 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
     }
 
     @Override
-    public void serviceSuccess(Channel channel) {
-        loadingDialog.hide();
-
-        Condition condition = channel.getItem().getCondition();
-        Units units = channel.getUnits();
+    public void showChannel(Channel channel) {
         Condition[] forecast = channel.getItem().getForecast();
 
-        int weatherIconImageResource = getResources().getIdentifier("icon_" + condition.getCode(), "drawable", getPackageName());
-
-        locationTextView.setText(SpolszczenieMiast(channel.getLocation()));
+        locationTextView.setText(Localization.get(this).city(channel.getLocation()));
 
         for (int day = 0; day < forecast.length; day++) {
-            if (day >= 7) {
+            if (day >= FORECAST_VIEWS.length) {
                 break;
             }
 
             Condition currentCondition = forecast[day];
 
-            int viewId = getResources().getIdentifier("forecast_" + day, "id", getPackageName());
-            WeatherConditionFragment fragment = (WeatherConditionFragment) getSupportFragmentManager().findFragmentById(viewId);
+            WeatherConditionFragment fragment = (WeatherConditionFragment) getSupportFragmentManager().findFragmentById(FORECAST_VIEWS[day]);
 
             if (fragment != null) {
                 fragment.loadForecast(currentCondition, channel.getUnits());
             }
         }
+    }
 
-        cacheService.save(channel);
+    @Override
+    public void showLoading() {
+        loadingDialog.show();
     }
 
     @Override
-    public void serviceFailure(Exception exception) {
-        // display error if this is the second failure
-        if (weatherServicesHasFailed) {
-            loadingDialog.hide();
-            Toast.makeText(this, exception.getMessage(), Toast.LENGTH_LONG).show();
-        } else {
-            // error doing reverse geocoding, load weather data from cache
-            weatherServicesHasFailed = true;
-            // OPTIONAL: let the user know an error has occurred then fallback to the cached data
-            Toast.makeText(this, exception.getMessage(), Toast.LENGTH_SHORT).show();
+    public void hideLoading() {
+        loadingDialog.hide();
+    }
 
-            cacheService.load(this);
-        }
+    @Override
+    public void showError(String message, boolean nothingToShow) {
+        Toast.makeText(this, message, nothingToShow ? Toast.LENGTH_LONG : Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onOpened(boolean fresh) {
+        // only the home screen counts towards the prefetch hit rate
     }
 
     @Override
     public void geocodeSuccess(LocationResult location) {
-        // completed geocoding successfully
-        weatherService.refreshWeather(location.getAddress());
+        // completed geocoding successfully, a new location replaces what is on screen
+        refreshWeather(location.getAddress());
 
         SharedPreferences.Editor editor = preferences.edit();
         editor.putString(getString(R.string.pref_cached_location), location.getAddress());
@@ -236,12 +253,12 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
     @Override
     public void geocodeFailure(Exception exception) {
         // GeoCoding failed, try loading weather data from the cache
-        cacheService.load(this);
+        forecastController.showFailure(preferences.getString(getString(R.string.pref_cached_location), null), exception);
     }
 
     @Override
     public void onLocationChanged(Location location) {
-        geocodingService.refreshLocation(location);
+        geocodingService.refreshLocation(location.getLatitude(), location.getLongitude());
     }
 
     @Override
@@ -265,36 +282,4 @@ public class Week extends AppCompatActivity implements WeatherServiceListener, G
         startActivity(intent);
     }
 
-    public String SpolszczenieMiast(String angielskaNazwa) {
-        switch (angielskaNazwa) {
-            case ("Warsaw"):
-                return "Warszawa";
-
-            case ("Krakow"):
-                return "Kraków";
-
-            case ("Wroclaw"):
-                return "Wrocław";
-
-            case ("Lodz"):
-                return "Łódź";
-
-            case ("Poznan"):
-                return "Poznań";
-
-            case ("Gdansk"):
-                return "Gdańsk";
-
-            case ("Bialystok"):
-                return "Białystok";
-
-            case ("Torun"):
-                return "Toruń";
-
-            case ("Ciemna Dabrowa"):
-                return "Ciemna Dąbrowa";
-        }
-        return angielskaNazwa;
-    }
-
 }
@@ -37,6 +37,7 @@ import android.view.MenuItem;
 
 import net.firstweather.app.weatherapp.R;
 import net.firstweather.app.weatherapp.HomeActivity;
+import net.firstweather.app.weatherapp.prefetch.PrefetchScheduler;
 
 public class SettingsFragment extends PreferenceFragment implements Preference.OnPreferenceChangeListener, SharedPreferences.OnSharedPreferenceChangeListener {
 
@@ -56,6 +57,7 @@ public class SettingsFragment extends PreferenceFragment implements Preference.O
         manualLocationPreference = (EditTextPreference) findPreference(getString(R.string.pref_manual_location));
 
         bindPreferenceSummaryToValue(manualLocationPreference);
+        bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_favourite_locations)));
         bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_temperature_unit)));
 
         PreferenceManager.getDefaultSharedPreferences(getActivity()).registerOnSharedPreferenceChangeListener(this);
@@ -88,6 +90,10 @@ public class SettingsFragment extends PreferenceFragment implements Preference.O
         } else {
             manualLocationPreference.setEnabled(true);
         }
+
+        if (getString(R.string.pref_favourite_locations).equals(s)) {
+            PrefetchScheduler.update(getActivity());
+        }
     }
 
     private void bindPreferenceSummaryToValue(Preference preference) {
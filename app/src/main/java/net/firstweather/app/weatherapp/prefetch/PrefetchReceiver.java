@@ -0,0 +1,44 @@
+package net.firstweather.app.weatherapp.prefetch;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+
+/**
+ * Woken by the prefetch alarm, and after a reboot to set the alarm again.
+ */
+public class PrefetchReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            PrefetchScheduler.update(context);
+            return;
+        }
+
+        if (canPrefetch(context.getApplicationContext())) {
+            context.startService(new Intent(context, PrefetchService.class));
+        }
+    }
+
+    /**
+     * Prefetching is only worth it on an unmetered network while the device is charging.
+     */
+    static boolean canPrefetch(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = connectivityManager.getActiveNetworkInfo();
+
+        if (network == null || !network.isConnected() || connectivityManager.isActiveNetworkMetered()) {
+            return false;
+        }
+
+        // sticky broadcast, nothing is actually registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+}
@@ -0,0 +1,59 @@
+package net.firstweather.app.weatherapp.prefetch;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+
+import net.firstweather.app.weatherapp.R;
+import net.firstweather.app.weatherapp.service.WeatherCacheService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedules the background refresh of the favourite locations. The alarm is inexact and does
+ * not wake the device, so the system folds it into a wakeup it makes anyway.
+ */
+public final class PrefetchScheduler {
+    private static final long INTERVAL = AlarmManager.INTERVAL_HOUR;
+
+    private PrefetchScheduler() {
+    }
+
+    /**
+     * Starts or stops the periodic prefetch depending on whether any favourites are set.
+     */
+    public static void update(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, new Intent(context, PrefetchReceiver.class), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        if (getFavouriteLocations(context).isEmpty()) {
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + INTERVAL, INTERVAL, pendingIntent);
+    }
+
+    /**
+     * @return the comma separated favourites from the settings, without blanks and duplicates
+     */
+    public static List<String> getFavouriteLocations(Context context) {
+        String value = PreferenceManager.getDefaultSharedPreferences(context).getString(context.getString(R.string.pref_favourite_locations), "");
+
+        Map<String, String> locations = new LinkedHashMap<>();
+        for (String location : value.split(",")) {
+            String trimmed = location.trim();
+            if (!trimmed.isEmpty() && !locations.containsKey(WeatherCacheService.normalize(trimmed))) {
+                locations.put(WeatherCacheService.normalize(trimmed), trimmed);
+            }
+        }
+
+        return new ArrayList<>(locations.values());
+    }
+}
@@ -0,0 +1,103 @@
+package net.firstweather.app.weatherapp.prefetch;
+
+import android.app.IntentService;
+import android.content.Intent;
+import android.preference.PreferenceManager;
+
+import net.firstweather.app.weatherapp.R;
+import net.firstweather.app.weatherapp.WeatherApplication;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.KeyedResultCallback;
+import net.firstweather.app.weatherapp.service.AndroidWeatherCacheService;
+import net.firstweather.app.weatherapp.service.ForecastFeed;
+import net.firstweather.app.weatherapp.service.RateLimiter;
+import net.firstweather.app.weatherapp.service.RequestPolicy;
+import net.firstweather.app.weatherapp.service.Result;
+import net.firstweather.app.weatherapp.service.WeatherCacheService;
+import net.firstweather.app.weatherapp.service.WoeidIndex;
+import net.firstweather.app.weatherapp.service.YahooWeatherProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Refreshes every favourite location that is no longer fresh in {@link WeatherCacheService},
+ * all in one batched request.
+ */
+public class PrefetchService extends IntentService {
+
+    public PrefetchService() {
+        super("PrefetchService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        // conditions may have changed while the intent was queued
+        if (!PrefetchReceiver.canPrefetch(getApplicationContext())) {
+            return;
+        }
+
+        String unit = PreferenceManager.getDefaultSharedPreferences(this).getString(getString(R.string.pref_temperature_unit), getString(R.string.pref_default_unit));
+        final String temperatureUnit = unit.equalsIgnoreCase("f") ? "f" : "c";
+
+        final WeatherCacheService cacheService = new AndroidWeatherCacheService(this);
+        final ForecastFeed forecastFeed = WeatherApplication.getForecastFeed(this);
+
+        List<String> stale = new ArrayList<>();
+        for (String location : PrefetchScheduler.getFavouriteLocations(this)) {
+            if (cacheService.getFresh(location, temperatureUnit) == null) {
+                stale.add(location);
+            }
+        }
+
+        final List<String> prefetched = Collections.synchronizedList(new ArrayList<String>());
+        final List<Future<?>> writes = Collections.synchronizedList(new ArrayList<Future<?>>());
+        final int[] failed = new int[1];
+
+        // queued behind anything a screen asks the upstream for
+        RequestPolicy policy = new RequestPolicy();
+        policy.setPriority(RateLimiter.Priority.BACKGROUND);
+
+        if (!stale.isEmpty()) {
+            try {
+                new YahooWeatherProvider(WoeidIndex.getInstance(getFilesDir()), policy).fetchAll(stale, temperatureUnit, new KeyedResultCallback<Channel>() {
+                    @Override
+                    public void onResult(String location, Result<Channel> result) {
+                        if (!result.isSuccess()) {
+                            synchronized (failed) {
+                                failed[0]++;
+                            }
+                            return;
+                        }
+
+                        prefetched.add(location);
+                        Future<?> write = cacheService.save(location, result.getValue());
+                        if (write != null) {
+                            writes.add(write);
+                        }
+
+                        // a screen showing the location updates right away
+                        forecastFeed.publish(location, temperatureUnit, result.getValue());
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        // the process may go away once this returns, keep it until the cache is on disk
+        for (Future<?> write : writes) {
+            try {
+                write.get();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (failed) {
+            PrefetchStats.recordRun(this, prefetched, failed[0]);
+        }
+    }
+}
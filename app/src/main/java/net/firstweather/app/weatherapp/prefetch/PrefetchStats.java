@@ -0,0 +1,86 @@
+package net.firstweather.app.weatherapp.prefetch;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * What the last prefetch runs did, and whether the app found fresh data when it was opened
+ * after a run.
+ */
+public final class PrefetchStats {
+    private static final String PREFERENCES = "prefetch_stats";
+    private static final String LAST_RUN_AT = "last_run_at";
+    private static final String LAST_PREFETCHED = "last_prefetched";
+    private static final String LAST_FAILED = "last_failed";
+    private static final String RUNS = "runs";
+    private static final String OPEN_PENDING = "open_pending";
+    private static final String OPEN_HITS = "open_hits";
+    private static final String OPEN_MISSES = "open_misses";
+
+    private PrefetchStats() {
+    }
+
+    static void recordRun(Context context, Collection<String> prefetched, int failed) {
+        SharedPreferences preferences = getPreferences(context);
+
+        preferences.edit()
+                .putLong(LAST_RUN_AT, System.currentTimeMillis())
+                .putStringSet(LAST_PREFETCHED, new HashSet<>(prefetched))
+                .putInt(LAST_FAILED, failed)
+                .putInt(RUNS, preferences.getInt(RUNS, 0) + 1)
+                .putBoolean(OPEN_PENDING, true)
+                .apply();
+    }
+
+    /**
+     * Counts the first open after a run as a hit if fresh data could be shown without the network.
+     */
+    public static void recordOpen(Context context, boolean hit) {
+        SharedPreferences preferences = getPreferences(context);
+
+        if (!preferences.getBoolean(OPEN_PENDING, false)) {
+            return;
+        }
+
+        String counter = hit ? OPEN_HITS : OPEN_MISSES;
+        preferences.edit()
+                .putBoolean(OPEN_PENDING, false)
+                .putInt(counter, preferences.getInt(counter, 0) + 1)
+                .apply();
+    }
+
+    public static long getLastRunAt(Context context) {
+        return getPreferences(context).getLong(LAST_RUN_AT, 0);
+    }
+
+    public static Set<String> getLastPrefetched(Context context) {
+        return getPreferences(context).getStringSet(LAST_PREFETCHED, new HashSet<String>());
+    }
+
+    public static int getLastFailed(Context context) {
+        return getPreferences(context).getInt(LAST_FAILED, 0);
+    }
+
+    public static int getRunCount(Context context) {
+        return getPreferences(context).getInt(RUNS, 0);
+    }
+
+    /**
+     * @return share of opens after a run that found fresh data, or -1 before the first such open
+     */
+    public static double getOpenHitRate(Context context) {
+        SharedPreferences preferences = getPreferences(context);
+        int hits = preferences.getInt(OPEN_HITS, 0);
+        int opens = hits + preferences.getInt(OPEN_MISSES, 0);
+
+        return opens == 0 ? -1 : (double) hits / opens;
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
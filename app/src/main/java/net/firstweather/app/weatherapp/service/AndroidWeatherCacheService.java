@@ -0,0 +1,19 @@
+package net.firstweather.app.weatherapp.service;
+
+import android.content.Context;
+
+import net.firstweather.app.weatherapp.R;
+import net.firstweather.app.weatherapp.WeatherApplication;
+import net.firstweather.app.weatherapp.data.BinaryChannelCodec;
+
+/**
+ * {@link WeatherCacheService} in the app's files directory, failing with a translated message.
+ * Every instance shares the application's memory tier.
+ */
+public class AndroidWeatherCacheService extends WeatherCacheService {
+
+    public AndroidWeatherCacheService(Context context) {
+        super(context.getFilesDir(), new BinaryChannelCodec(), WeatherApplication.getForecastStore(context));
+        setMissMessage(context.getString(R.string.cache_exception));
+    }
+}
@@ -0,0 +1,18 @@
+package net.firstweather.app.weatherapp.task;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Posts to the main looper, so task results can touch views.
+ */
+public class MainThreadExecutor implements Executor {
+    private final Handler mainThread = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute(Runnable runnable) {
+        mainThread.post(runnable);
+    }
+}
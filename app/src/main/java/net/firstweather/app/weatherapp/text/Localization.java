@@ -0,0 +1,38 @@
+package net.firstweather.app.weatherapp.text;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import net.firstweather.app.weatherapp.R;
+
+import java.util.Locale;
+
+/**
+ * Loads the {@link Translations} for the current locale from resources, once per locale.
+ */
+public final class Localization {
+    private static Translations translations;
+    private static Locale locale;
+
+    private Localization() {
+    }
+
+    public static synchronized Translations get(Context context) {
+        Locale current = Locale.getDefault();
+
+        if (translations == null || !current.equals(locale)) {
+            Resources resources = context.getApplicationContext().getResources();
+
+            translations = new Translations(
+                    resources.getStringArray(R.array.condition_names),
+                    resources.getString(R.string.condition_not_available),
+                    resources.getStringArray(R.array.day_names),
+                    resources.getStringArray(R.array.city_keys),
+                    resources.getStringArray(R.array.city_names),
+                    resources.getStringArray(R.array.month_names));
+            locale = current;
+        }
+
+        return translations;
+    }
+}
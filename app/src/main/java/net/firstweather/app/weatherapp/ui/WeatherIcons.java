@@ -0,0 +1,79 @@
+package net.firstweather.app.weatherapp.ui;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import net.firstweather.app.weatherapp.R;
+
+/**
+ * Weather icons by Yahoo condition code. Decoded bitmaps are shared by every screen, so the
+ * seven days of the week view showing the same condition decode its icon once.
+ */
+public final class WeatherIcons {
+    // indexed by condition code
+    private static final int[] DRAWABLES = {
+            R.drawable.icon_0, R.drawable.icon_1, R.drawable.icon_2, R.drawable.icon_3, R.drawable.icon_4, R.drawable.icon_5,
+            R.drawable.icon_6, R.drawable.icon_7, R.drawable.icon_8, R.drawable.icon_9, R.drawable.icon_10, R.drawable.icon_11,
+            R.drawable.icon_12, R.drawable.icon_13, R.drawable.icon_14, R.drawable.icon_15, R.drawable.icon_16, R.drawable.icon_17,
+            R.drawable.icon_18, R.drawable.icon_19, R.drawable.icon_20, R.drawable.icon_21, R.drawable.icon_22, R.drawable.icon_23,
+            R.drawable.icon_24, R.drawable.icon_25, R.drawable.icon_26, R.drawable.icon_27, R.drawable.icon_28, R.drawable.icon_29,
+            R.drawable.icon_30, R.drawable.icon_31, R.drawable.icon_32, R.drawable.icon_33, R.drawable.icon_34, R.drawable.icon_35,
+            R.drawable.icon_36, R.drawable.icon_37, R.drawable.icon_38, R.drawable.icon_39, R.drawable.icon_40, R.drawable.icon_41,
+            R.drawable.icon_42, R.drawable.icon_43, R.drawable.icon_44, R.drawable.icon_45, R.drawable.icon_46, R.drawable.icon_47
+    };
+
+    // budget at mdpi, the icons are scaled up with the density when decoded
+    private static final int BASE_CACHE_BYTES = 1024 * 1024;
+
+    private static LruCache<Integer, Bitmap> bitmaps;
+
+    private WeatherIcons() {
+    }
+
+    /**
+     * @return the drawable for the condition code, or the "not available" icon for unknown codes such as 3200
+     */
+    public static int getDrawable(int code) {
+        return code >= 0 && code < DRAWABLES.length ? DRAWABLES[code] : R.drawable.icon_na;
+    }
+
+    public static void show(ImageView view, int code) {
+        view.setImageBitmap(getBitmap(view.getContext(), code));
+    }
+
+    public static Bitmap getBitmap(Context context, int code) {
+        int drawable = getDrawable(code);
+        Resources resources = context.getResources();
+
+        LruCache<Integer, Bitmap> cache = getCache(resources);
+
+        Bitmap bitmap = cache.get(drawable);
+        if (bitmap == null) {
+            // decoding twice in a race is harmless, the second bitmap simply replaces the first
+            bitmap = BitmapFactory.decodeResource(resources, drawable);
+            cache.put(drawable, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    private static synchronized LruCache<Integer, Bitmap> getCache(Resources resources) {
+        if (bitmaps == null) {
+            float density = resources.getDisplayMetrics().density;
+            long budget = (long) (BASE_CACHE_BYTES * density * density);
+            long limit = Runtime.getRuntime().maxMemory() / 16;
+
+            bitmaps = new LruCache<Integer, Bitmap>((int) Math.min(budget, limit)) {
+                @Override
+                protected int sizeOf(Integer drawable, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+        }
+        return bitmaps;
+    }
+}
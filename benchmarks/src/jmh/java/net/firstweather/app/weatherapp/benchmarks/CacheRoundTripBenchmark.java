@@ -0,0 +1,98 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import net.firstweather.app.weatherapp.data.BinaryChannelCodec;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.data.ChannelCodec;
+import net.firstweather.app.weatherapp.data.JSONChannelCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Cache entries written and read the way WeatherCacheService does: the entry header followed by
+ * the encoded channel, in memory to isolate the codec and through a file for the whole path.
+ */
+@State(Scope.Thread)
+public class CacheRoundTripBenchmark {
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"binary", "json"})
+    public String codecName;
+
+    private ChannelCodec codec;
+    private Channel channel;
+    private byte[] encoded;
+    private File file;
+
+    @Setup
+    public void setUp() throws Exception {
+        codec = "json".equals(codecName) ? new JSONChannelCodec() : new BinaryChannelCodec();
+        channel = Payloads.parseTree(new String(Payloads.load("projected"), "UTF-8")).get(0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        write(output);
+        encoded = output.toByteArray();
+
+        file = File.createTempFile("channel", ".data");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        write(output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public Channel load() throws IOException {
+        return read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public Channel fileRoundTrip() throws IOException {
+        write(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        return read(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    }
+
+    private void write(OutputStream output) throws IOException {
+        DataOutputStream outputStream = new DataOutputStream(output);
+        outputStream.writeLong(System.currentTimeMillis());
+        outputStream.writeLong(30 * 60 * 1000);
+        outputStream.writeBoolean(false);
+        codec.encode(channel, outputStream);
+        outputStream.close();
+    }
+
+    private Channel read(InputStream input) throws IOException {
+        DataInputStream inputStream = new DataInputStream(input);
+        inputStream.readLong();
+        inputStream.readLong();
+        inputStream.readBoolean();
+        Channel channel = codec.decode(inputStream);
+        inputStream.close();
+        return channel;
+    }
+}
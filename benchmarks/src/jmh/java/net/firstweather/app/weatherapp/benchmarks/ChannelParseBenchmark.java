@@ -0,0 +1,52 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.data.JSONStreams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+/**
+ * Channel.populate from a Yahoo response, tree against streaming, and Channel.toJSON as the
+ * JSON cache codec writes it. Comparing the projected and full payloads shows what the field
+ * projection saves on the device.
+ */
+@State(Scope.Thread)
+public class ChannelParseBenchmark {
+    @Param({"projected", "full", "batch"})
+    public String payload;
+
+    private byte[] response;
+    private List<Channel> channels;
+
+    @Setup
+    public void setUp() throws Exception {
+        response = Payloads.load(payload);
+        channels = Payloads.parseTree(new String(response, "UTF-8"));
+    }
+
+    @Benchmark
+    public List<Channel> populateTree() throws Exception {
+        // the text is decoded per call, as the tree parser needs it whole
+        return Payloads.parseTree(new String(response, "UTF-8"));
+    }
+
+    @Benchmark
+    public List<Channel> populateStream() throws Exception {
+        return Payloads.parseStream(JSONStreams.newReader(new ByteArrayInputStream(response)));
+    }
+
+    @Benchmark
+    public void toJSON(Blackhole blackhole) {
+        for (Channel channel : channels) {
+            blackhole.consume(channel.toJSON().toString());
+        }
+    }
+}
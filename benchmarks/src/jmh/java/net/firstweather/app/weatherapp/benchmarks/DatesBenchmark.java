@@ -0,0 +1,75 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import net.firstweather.app.weatherapp.data.Dates;
+import net.firstweather.app.weatherapp.text.DateFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Parsing the upstream dates and formatting the date label. Both are expected to allocate
+ * nothing per call, gc.alloc.rate.norm should stay at 0; SimpleDateFormat is the baseline.
+ */
+@State(Scope.Thread)
+public class DatesBenchmark {
+    private static final String PUB_DATE = "Fri, 02 Jun 2017 08:00 PM CEST";
+    private static final String FORECAST_DATE = "02 Jun 2017";
+    private static final String[] MONTHS = {
+            "Styczeń", "Luty", "Marzec", "Kwiecień", "Maj", "Czerwiec",
+            "Lipiec", "Sierpień", "Wrzesień", "Październik", "Listopad", "Grudzień"
+    };
+
+    private final StringBuilder out = new StringBuilder(32);
+    private DateFormatter formatter;
+    private SimpleDateFormat forecastFormat;
+    private SimpleDateFormat labelFormat;
+    private int epochDay;
+    private Date date;
+
+    @Setup
+    public void setUp() throws ParseException {
+        formatter = new DateFormatter(MONTHS);
+        forecastFormat = new SimpleDateFormat("dd MMM yyyy", Locale.US);
+        labelFormat = new SimpleDateFormat("dd MMMM yyyy", new Locale("pl"));
+        epochDay = Dates.parseEpochDay(PUB_DATE);
+        date = forecastFormat.parse(FORECAST_DATE);
+    }
+
+    @Benchmark
+    public int parsePubDate() {
+        return Dates.parseEpochDay(PUB_DATE);
+    }
+
+    @Benchmark
+    public int parseForecastDate() {
+        return Dates.parseEpochDay(FORECAST_DATE);
+    }
+
+    @Benchmark
+    public int dayOfWeek() {
+        return Dates.getDayOfWeek(epochDay);
+    }
+
+    @Benchmark
+    public StringBuilder format() {
+        out.setLength(0);
+        return formatter.format(epochDay, out);
+    }
+
+    @Benchmark
+    public Date parseSimpleDateFormat() throws ParseException {
+        return forecastFormat.parse(FORECAST_DATE);
+    }
+
+    @Benchmark
+    public String formatSimpleDateFormat() {
+        return labelFormat.format(date);
+    }
+}
@@ -0,0 +1,135 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.service.CacheEntry;
+import net.firstweather.app.weatherapp.service.ForecastStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and refreshes of one shared store from many threads, the ForecastStore against the
+ * synchronized LRU it replaced. ForecastStoreContention runs it with 1 to 32 threads.
+ */
+@State(Scope.Benchmark)
+public class ForecastStoreBenchmark {
+    private static final int LOCATIONS = 512;
+    private static final int WRITE_EVERY = 16;
+
+    @Param({"striped", "synchronized"})
+    public String store;
+
+    private Store target;
+    private String[] keys;
+    private Channel channel;
+
+    @Setup
+    public void setUp() throws Exception {
+        // room for segments getting more than their share of the keys, so reads never miss
+        int capacity = 2 * LOCATIONS;
+        target = "synchronized".equals(store) ? new SynchronizedStore(capacity) : new StripedStore(capacity);
+        channel = Payloads.parseTree(new String(Payloads.load("projected"), "UTF-8")).get(0);
+
+        keys = new String[LOCATIONS];
+        for (int i = 0; i < LOCATIONS; i++) {
+            keys[i] = "location " + i;
+            target.put(new CacheEntry(keys[i], channel, System.currentTimeMillis(), Long.MAX_VALUE, false));
+        }
+    }
+
+    @Benchmark
+    public CacheEntry read(Cursor cursor) {
+        return target.get(keys[cursor.next()]);
+    }
+
+    /**
+     * One refresh published for every {@value #WRITE_EVERY} reads.
+     */
+    @Benchmark
+    public CacheEntry readMostly(Cursor cursor) {
+        int index = cursor.next();
+        if (cursor.position % WRITE_EVERY == 0) {
+            CacheEntry entry = new CacheEntry(keys[index], channel, System.currentTimeMillis(), Long.MAX_VALUE, false);
+            target.put(entry);
+            return entry;
+        }
+        return target.get(keys[index]);
+    }
+
+    /**
+     * Each thread walks the keys from its own starting point, so threads do not read in step.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static int threads = 0;
+
+        int position;
+
+        @Setup
+        public void setUp() {
+            synchronized (Cursor.class) {
+                position = threads++ * 97;
+            }
+        }
+
+        int next() {
+            return (position++ & 0x7fffffff) % LOCATIONS;
+        }
+    }
+
+    interface Store {
+        CacheEntry get(String key);
+
+        void put(CacheEntry entry);
+    }
+
+    static class StripedStore implements Store {
+        private final ForecastStore store;
+
+        StripedStore(int capacity) {
+            store = new ForecastStore(capacity);
+        }
+
+        @Override
+        public CacheEntry get(String key) {
+            return store.get(key);
+        }
+
+        @Override
+        public void put(CacheEntry entry) {
+            store.put(entry);
+        }
+    }
+
+    /**
+     * The access ordered LinkedHashMap WeatherCacheService used before, every read takes the lock.
+     */
+    static class SynchronizedStore implements Store {
+        private final LinkedHashMap<String, CacheEntry> entries;
+
+        SynchronizedStore(final int capacity) {
+            entries = new LinkedHashMap<String, CacheEntry>(capacity, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        @Override
+        public synchronized CacheEntry get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public synchronized void put(CacheEntry entry) {
+            entries.put(entry.getLocation(), entry);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ForecastStoreBenchmark} with 1 to 32 threads and prints the throughput of each
+ * store per thread count; the JMH results of every run are kept next to the report.
+ *
+ * Usage: ForecastStoreContention [report directory]
+ */
+public class ForecastStoreContention {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    public static void main(String[] args) throws RunnerException {
+        File directory = new File(args.length > 0 ? args[0] : "build/reports/jmh");
+        directory.mkdirs();
+
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%-8s %-12s %-14s %14s%n", "threads", "method", "store", "ops/us"));
+
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ForecastStoreBenchmark.class.getName())
+                    .threads(threads)
+                    .forks(1)
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .mode(Mode.Throughput)
+                    .timeUnit(TimeUnit.MICROSECONDS)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(directory, "contention-" + threads + ".json").getPath())
+                    .build();
+
+            Collection<RunResult> results = new Runner(options).run();
+            for (RunResult result : results) {
+                report.append(String.format(Locale.ROOT, "%-8d %-12s %-14s %14.2f%n",
+                        threads,
+                        result.getParams().getBenchmark().replaceFirst(".*\\.", ""),
+                        result.getParams().getParam("store"),
+                        result.getPrimaryResult().getScore()));
+            }
+        }
+
+        System.out.print(report);
+    }
+}
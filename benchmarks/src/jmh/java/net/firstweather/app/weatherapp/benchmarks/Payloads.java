@@ -0,0 +1,119 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import net.firstweather.app.weatherapp.data.Channel;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded Yahoo query responses, read the two ways the app can: into a tree with org.json, or
+ * streamed with gson the way the provider does.
+ *
+ * projected: the fields the app selects, one channel
+ * full:      everything Yahoo returns without a projection, one channel
+ * batch:     ten projected channels from one batched query
+ */
+final class Payloads {
+    private Payloads() {
+    }
+
+    static byte[] load(String name) throws IOException {
+        InputStream input = Payloads.class.getResourceAsStream("/payloads/" + name + ".json");
+        if (input == null) {
+            throw new IOException("No payload " + name);
+        }
+
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    static List<Channel> parseTree(String response) throws JSONException {
+        JSONObject results = new JSONObject(response).getJSONObject("query").getJSONObject("results");
+        List<Channel> channels = new ArrayList<>();
+
+        JSONArray array = results.optJSONArray("channel");
+        if (array == null) {
+            channels.add(populate(results.getJSONObject("channel")));
+        } else {
+            for (int i = 0; i < array.length(); i++) {
+                channels.add(populate(array.getJSONObject(i)));
+            }
+        }
+
+        return channels;
+    }
+
+    /**
+     * Mirrors YahooWeatherProvider.parseChannels.
+     */
+    static List<Channel> parseStream(JsonReader reader) throws IOException {
+        List<Channel> channels = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("query")) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("results")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("channel")) {
+                        reader.skipValue();
+                    } else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            channels.add(populate(reader));
+                        }
+                        reader.endArray();
+                    } else {
+                        channels.add(populate(reader));
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+
+        return channels;
+    }
+
+    private static Channel populate(JSONObject data) {
+        Channel channel = new Channel();
+        channel.populate(data);
+        return channel;
+    }
+
+    private static Channel populate(JsonReader reader) throws IOException {
+        Channel channel = new Channel();
+        channel.populate(reader);
+        return channel;
+    }
+}
@@ -0,0 +1,135 @@
+package net.firstweather.app.weatherapp.benchmarks;
+
+import net.firstweather.app.weatherapp.text.Translations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Lookups done for every condition and forecast on screen, with the tables the app ships, next
+ * to the same lookups through the switch statements they replaced. The switches only know
+ * Polish, so their score does not depend on the resources.
+ */
+@State(Scope.Thread)
+public class TranslationsBenchmark {
+    private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final String[] CITIES = {"Warsaw", "Krakow", "Gdansk", "Lublin"};
+    // the text Yahoo sends for every condition code, then for CODE_NOT_AVAILABLE
+    private static final String[] CONDITIONS = {
+            "Tornado", "Tropical Storm", "Hurricane", "Severe Thunderstorms", "Thunderstorms",
+            "Mixed Rain And Snow", "Mixed Rain And Sleet", "Mixed Snow And Sleet", "Freezing Drizzle",
+            "Drizzle", "Freezing Rain", "Showers", "Showers", "Snow Flurries", "Light Snow Showers",
+            "Blowing Snow", "Snow", "Hail", "Sleet", "Dust", "Foggy", "Haze", "Smoky", "Blustery",
+            "Windy", "Cold", "Cloudy", "Mostly Cloudy", "Mostly Cloudy", "Partly Cloudy",
+            "Partly Cloudy", "Clear", "Sunny", "Fair", "Mostly Sunny", "Mixed Rain And Hail", "Hot",
+            "Isolated Thunderstorms", "Scattered Thunderstorms", "Scattered Thunderstorms",
+            "Scattered Showers", "Heavy Snow", "Scattered Snow Showers", "Heavy Snow",
+            "Partly Cloudy", "Thundershowers", "Snow Showers", "Isolated Thundershowers",
+            "Not Available"};
+
+    @Param({"values", "values-en", "values-de"})
+    public String resources;
+
+    private Translations translations;
+    private final SwitchTranslations switchTranslations = new SwitchTranslations();
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        Document defaults = parse("values");
+        Document localized = parse(resources);
+
+        translations = new Translations(
+                getStringArray(localized, "condition_names"),
+                getString(localized, "condition_not_available"),
+                getStringArray(localized, "day_names"),
+                getStringArray(defaults, "city_keys"),
+                getStringArray(localized, "city_names"),
+                getStringArray(localized, "month_names"));
+    }
+
+    @Benchmark
+    public String condition() {
+        // every code, then one the table does not know
+        int code = next++ % 49;
+        return translations.condition(code == 48 ? Translations.CODE_NOT_AVAILABLE : code, "fallback");
+    }
+
+    @Benchmark
+    public String dayOfWeek() {
+        return translations.dayOfWeek(DAYS[next++ % DAYS.length]);
+    }
+
+    @Benchmark
+    public String city() {
+        // Lublin has no translation
+        return translations.city(CITIES[next++ % CITIES.length]);
+    }
+
+    @Benchmark
+    public String conditionSwitch() {
+        return switchTranslations.SpolszczenieWarunkowAtmosferycznych(CONDITIONS[next++ % CONDITIONS.length]);
+    }
+
+    @Benchmark
+    public String dayOfWeekSwitch() {
+        return switchTranslations.SpolszczenieDniTygodnia(DAYS[next++ % DAYS.length]);
+    }
+
+    @Benchmark
+    public String citySwitch() {
+        return switchTranslations.SpolszczenieMiast(CITIES[next++ % CITIES.length]);
+    }
+
+    private static Document parse(String directory) throws Exception {
+        InputStream input = TranslationsBenchmark.class.getResourceAsStream("/" + directory + "/translations.xml");
+        if (input == null) {
+            throw new IOException("No translations in " + directory);
+        }
+
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static String getString(Document document, String name) throws IOException {
+        return findNamed(document, "string", name).getTextContent();
+    }
+
+    private static String[] getStringArray(Document document, String name) throws IOException {
+        NodeList items = findNamed(document, "string-array", name).getElementsByTagName("item");
+
+        List<String> values = new ArrayList<>(items.getLength());
+        for (int i = 0; i < items.getLength(); i++) {
+            // undo the resource escaping of apostrophes
+            values.add(items.item(i).getTextContent().replace("\\'", "'"));
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    private static Element findNamed(Document document, String tag, String name) throws IOException {
+        NodeList elements = document.getElementsByTagName(tag);
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (name.equals(element.getAttribute("name"))) {
+                return element;
+            }
+        }
+        throw new IOException("No " + tag + " " + name);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Versioned, length-prefixed binary record of a {@link Channel}.
+ *
+ * Layout: magic (int), format version (short), payload length (int), payload.
+ * The payload is written by the {@link BinaryPopulator} implementations of the data model.
+ */
+public class BinaryChannelCodec implements ChannelCodec {
+    static final int MAGIC = 0x46574348; // "FWCH"
+    static final short FORMAT_VERSION = 3; // 2: channel link, 3: condition epoch day
+    // a channel with ten forecast days takes about 1 KB
+    static final int MAX_PAYLOAD_LENGTH = 256 * 1024;
+
+    @Override
+    public void encode(Channel channel, OutputStream output) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+        channel.write(new DataOutputStream(payload));
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(FORMAT_VERSION);
+        data.writeInt(payload.size());
+        payload.writeTo(data);
+        data.flush();
+    }
+
+    @Override
+    public Channel decode(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a weather cache record");
+        }
+
+        short version = data.readShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported weather cache version " + version);
+        }
+
+        int length = data.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Corrupted weather cache record, payload length " + length);
+        }
+
+        Channel channel = new Channel();
+        channel.populate(new DataInputStream(new ByteArrayInputStream(readPayload(data, length))));
+
+        return channel;
+    }
+
+    /**
+     * Reads the payload in chunks, so a length that is in range but larger than what is left of
+     * a truncated record only allocates the bytes that are actually there.
+     */
+    private static byte[] readPayload(InputStream input, int length) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(Math.min(length, 8192));
+        byte[] buffer = new byte[Math.min(length, 8192)];
+
+        int remaining = length;
+        while (remaining > 0) {
+            int read = input.read(buffer, 0, Math.min(remaining, buffer.length));
+            if (read == -1) {
+                throw new EOFException("Truncated weather cache record, "
+                        + (length - remaining) + " of " + length + " bytes");
+            }
+            payload.write(buffer, 0, read);
+            remaining -= read;
+        }
+
+        return payload.toByteArray();
+    }
+
+    static void writeString(DataOutput data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+}
@@ -24,31 +24,12 @@
  */
 package net.firstweather.app.weatherapp.data;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
-public class Units implements JSONPopulator {
-    private String temperature;
+public interface BinaryPopulator {
+    void populate(DataInput data) throws IOException;
 
-    public String getTemperature() {
-        return temperature;
-    }
-
-    @Override
-    public void populate(JSONObject data) {
-        temperature = data.optString("temperature");
-    }
-
-    @Override
-    public JSONObject toJSON() {
-        JSONObject data = new JSONObject();
-
-        try {
-            data.put("temperature", temperature);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-
-        return data;
-    }
+    void write(DataOutput data) throws IOException;
 }
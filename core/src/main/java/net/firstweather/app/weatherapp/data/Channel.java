@@ -0,0 +1,213 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.data;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class Channel implements JSONPopulator, JSONStreamPopulator, BinaryPopulator {
+    // e.g. .../*https://weather.yahoo.com/country/state/city-2502265/
+    private static final Pattern WOEID_IN_LINK = Pattern.compile("-(\\d+)/?$");
+
+    private Units units;
+    private Item item;
+    private String location;
+    private String link;
+
+    /**
+     * Dotted paths of every upstream member the model reads, for a query that returns nothing else.
+     */
+    public static List<String> getProjection() {
+        List<String> fields = new ArrayList<>();
+
+        for (String field : Units.FIELDS) {
+            fields.add("units." + field);
+        }
+        for (String field : Condition.FIELDS) {
+            fields.add("item.condition." + field);
+        }
+        // array members cannot be projected one by one, forecast days carry nothing unused anyway
+        fields.add("item.forecast");
+        fields.add("location.city");
+        fields.add("link");
+
+        return fields;
+    }
+
+    public Units getUnits() {
+        return units;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    /**
+     * @return the Where On Earth ID at the end of the channel link, or null if there is none
+     */
+    public String getWoeid() {
+        if (link == null) {
+            return null;
+        }
+
+        Matcher matcher = WOEID_IN_LINK.matcher(link);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    @Override
+    public void populate(JSONObject data) {
+
+        units = new Units();
+        units.populate(data.optJSONObject("units"));
+
+        item = new Item();
+        item.populate(data.optJSONObject("item"));
+
+        JSONObject locationData = data.optJSONObject("location");
+
+        String region = locationData.optString("region");
+        String country = locationData.optString("country");
+
+        location = String.format("%s", locationData.optString("city"));
+
+        link = data.optString("link", null);
+    }
+
+    @Override
+    public void populate(JsonReader reader) throws IOException {
+        units = new Units();
+        item = new Item();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "units":
+                    units.populate(reader);
+                    break;
+                case "item":
+                    item.populate(reader);
+                    break;
+                case "link":
+                    link = JSONStreams.nextString(reader);
+                    break;
+                case "location":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("city")) {
+                            location = JSONStreams.nextString(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    @Override
+    public JSONObject toJSON() {
+
+        JSONObject data = new JSONObject();
+
+        try {
+            data.put("units", units.toJSON());
+            data.put("item", item.toJSON());
+
+            JSONObject locationData = new JSONObject();
+            locationData.put("city", location);
+            data.put("location", locationData);
+
+            data.put("link", link);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        return data;
+    }
+
+    @Override
+    public void populate(DataInput data) throws IOException {
+        units = new Units();
+        units.populate(data);
+
+        item = new Item();
+        item.populate(data);
+
+        location = BinaryChannelCodec.readString(data);
+        link = BinaryChannelCodec.readString(data);
+    }
+
+    @Override
+    public void write(DataOutput data) throws IOException {
+        units.write(data);
+        item.write(data);
+        BinaryChannelCodec.writeString(data, location);
+        BinaryChannelCodec.writeString(data, link);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Channel)) {
+            return false;
+        }
+
+        Channel channel = (Channel) o;
+        return Objects.equals(units, channel.units)
+                && Objects.equals(item, channel.item)
+                && Objects.equals(location, channel.location)
+                && Objects.equals(link, channel.link);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(units, item, location, link);
+    }
+}
@@ -24,32 +24,15 @@
  */
 package net.firstweather.app.weatherapp.data;
 
-import net.firstweather.app.weatherapp.HomeActivity;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-public class LocationResult implements JSONPopulator {
-
-    private String address;
-
-    public String getAddress() {
-        return address;
-    }
-
-    @Override
-    public void populate(JSONObject data) {
-        address = data.optString("formatted_address");
-    }
-
-    @Override
-    public JSONObject toJSON() {
-        JSONObject data = new JSONObject();
-
-        try {
-            data.put("formatted_address", address);
-        } catch (JSONException e) {}
+/**
+ * Serializes a {@link Channel} to and from a stream, e.g. the weather cache file.
+ */
+public interface ChannelCodec {
+    void encode(Channel channel, OutputStream output) throws IOException;
 
-        return data;
-    }
+    Channel decode(InputStream input) throws IOException;
 }
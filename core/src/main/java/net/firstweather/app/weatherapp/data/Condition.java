@@ -0,0 +1,200 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.data;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+
+public class Condition implements JSONPopulator, JSONStreamPopulator, BinaryPopulator {
+    /**
+     * Members read by populate, the rest of the upstream object is never asked for.
+     */
+    static final String[] FIELDS = {"code", "temp", "high", "low", "text", "day", "date"};
+
+    private int code;
+    private int temperature;
+    private int highTemperature;
+    private int lowTemperature;
+    private String description;
+    private String day;
+    private String date;
+    private int epochDay = Dates.UNKNOWN;
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getTemperature() {
+        return temperature;
+    }
+
+    public int getHighTemperature() {
+        return highTemperature;
+    }
+
+    public int getLowTemperature() {
+        return lowTemperature;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return the date as days since 1970-01-01, parsed once when the condition was read, or {@link Dates#UNKNOWN}
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    @Override
+    public void populate(JSONObject data) {
+        code = data.optInt("code");
+        temperature = data.optInt("temp");
+        highTemperature = data.optInt("high");
+        lowTemperature = data.optInt("low");
+        description = data.optString("text");
+        day = data.optString("day");
+        date = data.optString("date");
+        epochDay = Dates.parseEpochDay(date);
+    }
+
+    @Override
+    public void populate(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code":
+                    code = JSONStreams.nextInt(reader);
+                    break;
+                case "temp":
+                    temperature = JSONStreams.nextInt(reader);
+                    break;
+                case "high":
+                    highTemperature = JSONStreams.nextInt(reader);
+                    break;
+                case "low":
+                    lowTemperature = JSONStreams.nextInt(reader);
+                    break;
+                case "text":
+                    description = JSONStreams.nextString(reader);
+                    break;
+                case "day":
+                    day = JSONStreams.nextString(reader);
+                    break;
+                case "date":
+                    date = JSONStreams.nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        epochDay = Dates.parseEpochDay(date);
+    }
+
+    @Override
+    public JSONObject toJSON() {
+        JSONObject data = new JSONObject();
+
+        try {
+            data.put("code", code);
+            data.put("temp", temperature);
+            data.put("high", highTemperature);
+            data.put("low", lowTemperature);
+            data.put("text", description);
+            data.put("day", day);
+            data.put("date", date);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        return data;
+    }
+
+    @Override
+    public void populate(DataInput data) throws IOException {
+        code = data.readInt();
+        temperature = data.readInt();
+        highTemperature = data.readInt();
+        lowTemperature = data.readInt();
+        description = BinaryChannelCodec.readString(data);
+        day = BinaryChannelCodec.readString(data);
+        date = BinaryChannelCodec.readString(data);
+        epochDay = data.readInt();
+    }
+
+    @Override
+    public void write(DataOutput data) throws IOException {
+        data.writeInt(code);
+        data.writeInt(temperature);
+        data.writeInt(highTemperature);
+        data.writeInt(lowTemperature);
+        BinaryChannelCodec.writeString(data, description);
+        BinaryChannelCodec.writeString(data, day);
+        BinaryChannelCodec.writeString(data, date);
+        data.writeInt(epochDay);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Condition)) {
+            return false;
+        }
+
+        Condition other = (Condition) o;
+        return code == other.code
+                && temperature == other.temperature
+                && highTemperature == other.highTemperature
+                && lowTemperature == other.lowTemperature
+                && Objects.equals(description, other.description)
+                && Objects.equals(day, other.day)
+                && Objects.equals(date, other.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(code, temperature, highTemperature, lowTemperature, description, day, date);
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.data;
+
+/**
+ * Dates as a primitive day count since 1970-01-01, parsed from the upstream's "02 Jun 2017" and
+ * "Fri, 02 Jun 2017 08:00 PM CEST" forms without creating any objects.
+ */
+public final class Dates {
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // lower case three letter month abbreviations packed into an int, January first
+    private static final int[] MONTH_KEYS = {
+            key('j', 'a', 'n'), key('f', 'e', 'b'), key('m', 'a', 'r'), key('a', 'p', 'r'),
+            key('m', 'a', 'y'), key('j', 'u', 'n'), key('j', 'u', 'l'), key('a', 'u', 'g'),
+            key('s', 'e', 'p'), key('o', 'c', 't'), key('n', 'o', 'v'), key('d', 'e', 'c')
+    };
+
+    private Dates() {
+    }
+
+    /**
+     * @return days since 1970-01-01, or {@link #UNKNOWN} if the text holds no day, month and year
+     */
+    public static int parseEpochDay(CharSequence text) {
+        if (text == null) {
+            return UNKNOWN;
+        }
+
+        int length = text.length();
+        int i = 0;
+
+        // skip the optional day of the week
+        while (i < length && !isDigit(text.charAt(i))) {
+            i++;
+        }
+
+        int day = 0;
+        int digits = 0;
+        while (i < length && isDigit(text.charAt(i)) && digits < 2) {
+            day = day * 10 + (text.charAt(i++) - '0');
+            digits++;
+        }
+
+        while (i < length && text.charAt(i) == ' ') {
+            i++;
+        }
+
+        if (i + 3 > length) {
+            return UNKNOWN;
+        }
+        int month = monthOf(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+        i += 3;
+
+        while (i < length && text.charAt(i) == ' ') {
+            i++;
+        }
+
+        int year = 0;
+        digits = 0;
+        while (i < length && isDigit(text.charAt(i)) && digits < 4) {
+            year = year * 10 + (text.charAt(i++) - '0');
+            digits++;
+        }
+
+        if (day < 1 || day > 31 || month < 1 || digits != 4) {
+            return UNKNOWN;
+        }
+
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * @param month 1 for January to 12 for December
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        // shift the year to start in March, so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static int getYear(int epochDay) {
+        return civil(epochDay) >> 9;
+    }
+
+    /**
+     * @return 1 for January to 12 for December
+     */
+    public static int getMonth(int epochDay) {
+        return (civil(epochDay) >> 5) & 0xF;
+    }
+
+    public static int getDayOfMonth(int epochDay) {
+        return civil(epochDay) & 0x1F;
+    }
+
+    /**
+     * @return 0 for Monday to 6 for Sunday
+     */
+    public static int getDayOfWeek(int epochDay) {
+        // 1970-01-01 was a Thursday
+        int day = (epochDay + 3) % 7;
+        return day < 0 ? day + 7 : day;
+    }
+
+    /**
+     * Inverse of toEpochDay, packed as year << 9 | month << 5 | day.
+     */
+    private static int civil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        return year << 9 | month << 5 | day;
+    }
+
+    private static int monthOf(char first, char second, char third) {
+        int key = key(Character.toLowerCase(first), Character.toLowerCase(second), Character.toLowerCase(third));
+
+        for (int month = 0; month < MONTH_KEYS.length; month++) {
+            if (MONTH_KEYS[month] == key) {
+                return month + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int key(char first, char second, char third) {
+        return first << 16 | second << 8 | third;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.data;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+public class Item implements JSONPopulator, JSONStreamPopulator, BinaryPopulator {
+    // Yahoo forecasts ten days, anything far beyond that in a cache record is corruption
+    static final int MAX_FORECAST_DAYS = 64;
+
+    private Condition condition;
+    private Condition[] forecast;
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public Condition[] getForecast() {
+        return forecast;
+    }
+
+    @Override
+    public void populate(JSONObject data) {
+        condition = new Condition();
+        condition.populate(data.optJSONObject("condition"));
+
+        JSONArray forecastData = data.optJSONArray("forecast");
+
+        forecast = new Condition[forecastData.length()];
+
+        for (int i = 0; i < forecastData.length(); i++) {
+            forecast[i] = new Condition();
+            try {
+                forecast[i].populate(forecastData.getJSONObject(i));
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void populate(JsonReader reader) throws IOException {
+        condition = new Condition();
+        forecast = new Condition[0];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "condition":
+                    condition.populate(reader);
+                    break;
+                case "forecast":
+                    ArrayList<Condition> days = new ArrayList<>(10);
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Condition day = new Condition();
+                        day.populate(reader);
+                        days.add(day);
+                    }
+                    reader.endArray();
+                    forecast = days.toArray(new Condition[days.size()]);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    @Override
+    public JSONObject toJSON() {
+        JSONObject data = new JSONObject();
+        try {
+            data.put("condition", condition.toJSON());
+
+            JSONArray forecastData = new JSONArray();
+            for (Condition day : forecast) {
+                forecastData.put(day.toJSON());
+            }
+            data.put("forecast", forecastData);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return data;
+    }
+
+    @Override
+    public void populate(DataInput data) throws IOException {
+        condition = new Condition();
+        condition.populate(data);
+
+        int days = data.readInt();
+        if (days < 0 || days > MAX_FORECAST_DAYS) {
+            throw new IOException("Corrupted forecast of " + days + " days");
+        }
+
+        forecast = new Condition[days];
+
+        for (int i = 0; i < forecast.length; i++) {
+            forecast[i] = new Condition();
+            forecast[i].populate(data);
+        }
+    }
+
+    @Override
+    public void write(DataOutput data) throws IOException {
+        condition.write(data);
+
+        data.writeInt(forecast.length);
+
+        for (Condition day : forecast) {
+            day.write(data);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Item)) {
+            return false;
+        }
+
+        Item other = (Item) o;
+        return Objects.equals(condition, other.condition) && Arrays.equals(forecast, other.forecast);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(condition) + Arrays.hashCode(forecast);
+    }
+}
@@ -27,54 +27,43 @@ package net.firstweather.app.weatherapp.data;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-public class Channel implements JSONPopulator {
-    private Units units;
-    private Item item;
-    private String location;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 
-    public Units getUnits() {
-        return units;
-    }
-
-    public Item getItem() {
-        return item;
-    }
-
-    public String getLocation() {
-        return location;
-    }
+/**
+ * Human readable codec, kept around for exporting and debugging cached data.
+ */
+public class JSONChannelCodec implements ChannelCodec {
+    private static final String CHARSET = "UTF-8";
 
     @Override
-    public void populate(JSONObject data) {
-
-        units = new Units();
-        units.populate(data.optJSONObject("units"));
-
-        item = new Item();
-        item.populate(data.optJSONObject("item"));
-
-        JSONObject locationData = data.optJSONObject("location");
-
-        String region = locationData.optString("region");
-        String country = locationData.optString("country");
-
-        location = String.format("%s", locationData.optString("city"));
+    public void encode(Channel channel, OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, CHARSET);
+        writer.write(channel.toJSON().toString());
+        writer.flush();
     }
 
     @Override
-    public JSONObject toJSON() {
-
-        JSONObject data = new JSONObject();
+    public Channel decode(InputStream input) throws IOException {
+        Reader reader = new InputStreamReader(input, CHARSET);
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            result.append(buffer, 0, read);
+        }
 
         try {
-            data.put("units", units.toJSON());
-            data.put("item", item.toJSON());
-            data.put("requestLocation", location);
+            Channel channel = new Channel();
+            channel.populate(new JSONObject(result.toString()));
+            return channel;
         } catch (JSONException e) {
-            e.printStackTrace();
+            throw new IOException(e.getMessage());
         }
-
-        return data;
     }
-
 }
@@ -24,50 +24,59 @@
  */
 package net.firstweather.app.weatherapp.data;
 
-import org.json.JSONArray;
+import com.google.gson.stream.JsonReader;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
-public class Item implements JSONPopulator {
-    private Condition condition;
-    private Condition[] forecast;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
-    public Condition getCondition() {
-        return condition;
-    }
+public class LocationResult implements JSONPopulator, JSONStreamPopulator, BinaryPopulator {
 
-    public Condition[] getForecast() {
-        return forecast;
+    private String address;
+
+    public String getAddress() {
+        return address;
     }
 
     @Override
     public void populate(JSONObject data) {
-        condition = new Condition();
-        condition.populate(data.optJSONObject("condition"));
-
-        JSONArray forecastData = data.optJSONArray("forecast");
-
-        forecast = new Condition[forecastData.length()];
+        address = data.optString("formatted_address");
+    }
 
-        for (int i = 0; i < forecastData.length(); i++) {
-            forecast[i] = new Condition();
-            try {
-                forecast[i].populate(forecastData.getJSONObject(i));
-            } catch (JSONException e) {
-                e.printStackTrace();
+    @Override
+    public void populate(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("formatted_address")) {
+                address = JSONStreams.nextString(reader);
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endObject();
     }
 
     @Override
     public JSONObject toJSON() {
         JSONObject data = new JSONObject();
+
         try {
-            data.put("condition", condition.toJSON());
-            data.put("forecast", new JSONArray(forecast));
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+            data.put("formatted_address", address);
+        } catch (JSONException e) {}
+
         return data;
     }
+
+    @Override
+    public void populate(DataInput data) throws IOException {
+        address = BinaryChannelCodec.readString(data);
+    }
+
+    @Override
+    public void write(DataOutput data) throws IOException {
+        BinaryChannelCodec.writeString(data, address);
+    }
 }
@@ -24,55 +24,44 @@
  */
 package net.firstweather.app.weatherapp.data;
 
+import com.google.gson.stream.JsonReader;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
-public class Condition implements JSONPopulator {
-    private int code;
-    private int temperature;
-    private int highTemperature;
-    private int lowTemperature;
-    private String description;
-    private String day;
-    private String date;
-
-    public int getCode() {
-        return code;
-    }
-
-    public int getTemperature() {
-        return temperature;
-    }
-
-    public int getHighTemperature() {
-        return highTemperature;
-    }
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
 
-    public int getLowTemperature() {
-        return lowTemperature;
-    }
+public class Units implements JSONPopulator, JSONStreamPopulator, BinaryPopulator {
+    /**
+     * Members read by populate, the rest of the upstream object is never asked for.
+     */
+    static final String[] FIELDS = {"temperature"};
 
-    public String getDescription() {
-        return description;
-    }
+    private String temperature;
 
-    public String getDay() {
-        return day;
+    public String getTemperature() {
+        return temperature;
     }
 
-    public String getDate() {
-        return date;
+    @Override
+    public void populate(JSONObject data) {
+        temperature = data.optString("temperature");
     }
 
     @Override
-    public void populate(JSONObject data) {
-        code = data.optInt("code");
-        temperature = data.optInt("temp");
-        highTemperature = data.optInt("high");
-        lowTemperature = data.optInt("low");
-        description = data.optString("text");
-        day = data.optString("day");
-        date = data.optString("date");
+    public void populate(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("temperature")) {
+                temperature = JSONStreams.nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
     }
 
     @Override
@@ -80,17 +69,31 @@ public class Condition implements JSONPopulator {
         JSONObject data = new JSONObject();
 
         try {
-            data.put("code", code);
-            data.put("temp", temperature);
-            data.put("high", highTemperature);
-            data.put("low", lowTemperature);
-            data.put("text", description);
-            data.put("day", day);
-            data.put("date", date);
+            data.put("temperature", temperature);
         } catch (JSONException e) {
             e.printStackTrace();
         }
 
         return data;
     }
+
+    @Override
+    public void populate(DataInput data) throws IOException {
+        temperature = BinaryChannelCodec.readString(data);
+    }
+
+    @Override
+    public void write(DataOutput data) throws IOException {
+        BinaryChannelCodec.writeString(data, temperature);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Units && Objects.equals(temperature, ((Units) o).temperature);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(temperature);
+    }
 }
@@ -0,0 +1,19 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.KeyedResultCallback;
+
+import java.util.Collection;
+
+/**
+ * A provider able to answer for many locations with few upstream requests.
+ */
+public interface BatchWeatherProvider extends WeatherProvider {
+
+    /**
+     * Blocks until every location has been answered. Results are handed to the sink as soon as
+     * each one is parsed, exactly once per location, on whichever thread parsed it: the calling
+     * thread or a worker, so the sink has to be thread-safe.
+     */
+    void fetchAll(Collection<String> locations, String temperatureUnit, KeyedResultCallback<Channel> sink) throws Exception;
+}
@@ -0,0 +1,51 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+
+/**
+ * A cached {@link Channel} together with the time it was fetched and how long it stays fresh.
+ * Immutable, so it can be shared between threads without locking.
+ */
+public class CacheEntry {
+    private final String location;
+    private final Channel channel;
+    private final long fetchedAt;
+    private final long timeToLive;
+    private final boolean stale;
+
+    public CacheEntry(String location, Channel channel, long fetchedAt, long timeToLive, boolean stale) {
+        this.location = location;
+        this.channel = channel;
+        this.fetchedAt = fetchedAt;
+        this.timeToLive = timeToLive;
+        this.stale = stale;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public CacheEntry asStale() {
+        return stale ? this : new CacheEntry(location, channel, fetchedAt, timeToLive, true);
+    }
+
+    public boolean isFresh(long now) {
+        return !stale && now - fetchedAt < timeToLive;
+    }
+}
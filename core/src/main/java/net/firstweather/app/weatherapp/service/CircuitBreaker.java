@@ -0,0 +1,244 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops calling an upstream that keeps failing, so callers fall back to cached data at once
+ * instead of after a deadline.
+ *
+ * CLOSED lets every call through and counts outcomes over a rolling window. Once enough calls
+ * were made and too many of them failed, the breaker goes OPEN and rejects calls with
+ * CIRCUIT_OPEN. After the open duration it goes HALF_OPEN and lets a single probe through: a
+ * success closes the breaker with an empty window, a failure opens it again.
+ *
+ * Only transient failures count, the ones a retry could have fixed. A place that does not
+ * exist or a call cancelled by its caller says nothing about the upstream's health.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int WINDOW_SLICES = 6;
+    private static final long SLICE_NANOS = TimeUnit.SECONDS.toNanos(10); // a one minute window
+
+    private final String name;
+    private final Clock clock;
+    private final long origin;
+
+    private double failureRateThreshold = 0.5;
+    private int minimumCalls = 5;
+    private long openDuration = 30000;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing = false;
+    private final long[] sliceIds = new long[WINDOW_SLICES];
+    private final int[] calls = new int[WINDOW_SLICES];
+    private final int[] failures = new int[WINDOW_SLICES];
+
+    private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CircuitBreaker(String name) {
+        this(name, Clock.SYSTEM);
+    }
+
+    /**
+     * @param name upstream named in the rejection message
+     */
+    public CircuitBreaker(String name, Clock clock) {
+        this.name = name;
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+
+        for (State state : State.values()) {
+            transitions.put(state, new AtomicLong());
+        }
+    }
+
+    /**
+     * Fraction of failed calls in the window that opens the breaker.
+     */
+    public synchronized void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Calls the window needs before its failure rate is trusted.
+     */
+    public synchronized void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    /**
+     * Milliseconds the breaker stays open before letting a probe through.
+     */
+    public synchronized void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Runs the call unless the breaker is open, and records its outcome.
+     *
+     * @throws ServiceException CIRCUIT_OPEN without calling the upstream while the breaker is open
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        acquirePermission();
+
+        boolean recorded = false;
+        try {
+            T value;
+            try {
+                value = call.call();
+            } catch (Exception e) {
+                recorded = true;
+                onFailure(ServiceException.from(e));
+                throw e;
+            }
+
+            recorded = true;
+            onSuccess();
+            return value;
+        } finally {
+            if (!recorded) {
+                // e.g. an Error, which tells nothing about the upstream but must not keep the probe out
+                onAbandoned();
+            }
+        }
+    }
+
+    public synchronized void acquirePermission() throws ServiceException {
+        long now = clock.nanoTime();
+
+        if (state == State.OPEN) {
+            long remaining = openedAt + TimeUnit.MILLISECONDS.toNanos(openDuration) - now;
+            if (remaining > 0) {
+                reject("retrying in " + TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1) + " s");
+            }
+            transition(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                reject("waiting for a probe");
+            }
+            probing = true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            clearWindow();
+            transition(State.CLOSED);
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(ServiceException error) {
+        if (!error.isRetryable()) {
+            // let the next call probe instead
+            probing = false;
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+
+            int windowCalls = 0;
+            int windowFailures = 0;
+            long current = getSliceId(clock.nanoTime());
+            for (int i = 0; i < WINDOW_SLICES; i++) {
+                if (current - sliceIds[i] < WINDOW_SLICES) {
+                    windowCalls += calls[i];
+                    windowFailures += failures[i];
+                }
+            }
+
+            if (windowCalls >= minimumCalls && windowFailures >= failureRateThreshold * windowCalls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Ends a permitted call that has no outcome to record, so the next call may probe.
+     */
+    public synchronized void onAbandoned() {
+        probing = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Times the breaker went into the state.
+     */
+    public long getTransitionCount(State state) {
+        return transitions.get(state).get();
+    }
+
+    /**
+     * Calls turned away without reaching the upstream.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void reject(String detail) throws ServiceException {
+        rejectedCount.incrementAndGet();
+        throw new ServiceException(ServiceException.Kind.CIRCUIT_OPEN, name + " is failing, " + detail);
+    }
+
+    private void open() {
+        openedAt = clock.nanoTime();
+        clearWindow();
+        transition(State.OPEN);
+    }
+
+    private void transition(State next) {
+        state = next;
+        transitions.get(next).incrementAndGet();
+    }
+
+    private void record(boolean failed) {
+        long sliceId = getSliceId(clock.nanoTime());
+        int index = (int) (sliceId % WINDOW_SLICES);
+
+        if (sliceIds[index] != sliceId) {
+            // the slice last held outcomes a whole window ago
+            sliceIds[index] = sliceId;
+            calls[index] = 0;
+            failures[index] = 0;
+        }
+
+        calls[index]++;
+        if (failed) {
+            failures[index]++;
+        }
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < WINDOW_SLICES; i++) {
+            calls[i] = 0;
+            failures[i] = 0;
+        }
+    }
+
+    private long getSliceId(long now) {
+        return (now - origin) / SLICE_NANOS;
+    }
+}
@@ -0,0 +1,32 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of time for decisions that have to be reproducible, e.g. admitting a request under a
+ * rate limit. Tests substitute a clock they advance by hand.
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void waitOn(Object monitor, long nanos) throws InterruptedException {
+            TimeUnit.NANOSECONDS.timedWait(monitor, nanos);
+        }
+    };
+
+    /**
+     * Monotonic nanoseconds, only meaningful relative to another reading of the same clock.
+     */
+    long nanoTime();
+
+    /**
+     * Waits on the monitor, which the caller holds, until notified or until about the nanoseconds
+     * passed on this clock. May return early, so callers wait in a loop that reads the clock.
+     */
+    void waitOn(Object monitor, long nanos) throws InterruptedException;
+}
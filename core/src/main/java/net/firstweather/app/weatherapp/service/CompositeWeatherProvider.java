@@ -0,0 +1,236 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries several providers in parallel and answers with the first forecast, or with the
+ * median of the first {@code quorum} forecasts. Requests still running once the answer is known
+ * are cancelled.
+ *
+ * Providers are ranked by their recent median latency, penalised for consecutive failures; only
+ * the best {@code fanOut} are asked at first and the next one is started whenever one fails.
+ * Providers are asked on the UPSTREAM pool; one that finds no thread free is not asked at all,
+ * and with none free the fetch fails at once with REJECTED. Providers still running at the
+ * deadline are cancelled too, and the fetch fails with TIMEOUT unless one of them answered.
+ */
+public class CompositeWeatherProvider implements WeatherProvider {
+    private static final long FAILURE_PENALTY = 5000;
+
+    private final List<Member> members = new ArrayList<>();
+    private final int quorum;
+    private volatile int fanOut;
+    private volatile long deadline = new RequestPolicy().getDeadline();
+
+    public CompositeWeatherProvider(List<? extends WeatherProvider> providers) {
+        this(providers, 1);
+    }
+
+    /**
+     * @param quorum number of forecasts to merge, 1 returns the first one
+     */
+    public CompositeWeatherProvider(List<? extends WeatherProvider> providers, int quorum) {
+        if (providers.isEmpty() || quorum < 1 || quorum > providers.size()) {
+            throw new IllegalArgumentException("Quorum of " + quorum + " for " + providers.size() + " providers");
+        }
+
+        for (WeatherProvider provider : providers) {
+            members.add(new Member(provider));
+        }
+        this.quorum = quorum;
+        this.fanOut = providers.size();
+    }
+
+    /**
+     * Number of providers asked at once, at least the quorum.
+     */
+    public void setFanOut(int fanOut) {
+        this.fanOut = Math.max(quorum, Math.min(fanOut, members.size()));
+    }
+
+    /**
+     * Milliseconds after which the fetch stops waiting for the providers, failovers included.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder("composite");
+        for (Member member : members) {
+            name.append('+').append(member.provider.getName());
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return the providers, fastest and most reliable first
+     */
+    public List<WeatherProvider> getRanking() {
+        List<WeatherProvider> ranking = new ArrayList<>();
+        for (Member member : rank()) {
+            ranking.add(member.provider);
+        }
+        return ranking;
+    }
+
+    @Override
+    public Channel fetch(final String location, final String temperatureUnit) throws Exception {
+        List<Member> ranked = rank();
+        int fanOut = this.fanOut;
+        long timeout = this.deadline;
+        long deadline = System.currentTimeMillis() + timeout;
+
+        CompletionService<Channel> completion = new ExecutorCompletionService<>(TaskScheduler.getInstance().getExecutor(Pool.UPSTREAM));
+        List<Future<Channel>> running = new ArrayList<>(ranked.size());
+        List<Channel> answers = new ArrayList<>(quorum);
+        Exception firstError = null;
+
+        int started = 0;
+        int pending = 0;
+
+        try {
+            for (; started < fanOut; started++) {
+                try {
+                    running.add(completion.submit(ranked.get(started).newCall(location, temperatureUnit)));
+                    pending++;
+                } catch (RejectedExecutionException e) {
+                    // every upstream thread is busy, go on with the providers already asked
+                    firstError = ServiceException.from(e);
+                    break;
+                }
+            }
+
+            while (pending > 0 && answers.size() < quorum) {
+                long remaining = deadline - System.currentTimeMillis();
+                Future<Channel> done = remaining > 0 ? completion.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (done == null) {
+                    // a provider that hangs must not hang the composite
+                    firstError = new ServiceException(ServiceException.Kind.TIMEOUT, "No provider answered within " + timeout + " ms", firstError);
+                    break;
+                }
+                pending--;
+
+                try {
+                    answers.add(done.get());
+                } catch (ExecutionException e) {
+                    if (firstError == null) {
+                        firstError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+
+                    if (started < ranked.size()) {
+                        // replace the failed provider with the next best one, unless no thread is free for it
+                        try {
+                            running.add(completion.submit(ranked.get(started).newCall(location, temperatureUnit)));
+                            started++;
+                            pending++;
+                        } catch (RejectedExecutionException rejected) {
+                            started = ranked.size();
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (Future<Channel> future : running) {
+                future.cancel(true);
+            }
+        }
+
+        if (answers.isEmpty()) {
+            throw firstError;
+        }
+
+        // with fewer answers than the quorum a forecast is still better than none
+        return median(answers);
+    }
+
+    /**
+     * Forecast with the median current temperature, so one provider far off from the others is
+     * never chosen.
+     */
+    private static Channel median(List<Channel> answers) {
+        List<Channel> sorted = new ArrayList<>(answers);
+        Collections.sort(sorted, new Comparator<Channel>() {
+            @Override
+            public int compare(Channel first, Channel second) {
+                int a = first.getItem().getCondition().getTemperature();
+                int b = second.getItem().getCondition().getTemperature();
+                return a < b ? -1 : (a == b ? 0 : 1);
+            }
+        });
+
+        return sorted.get((sorted.size() - 1) / 2);
+    }
+
+    private List<Member> rank() {
+        List<Member> ranked = new ArrayList<>(members);
+
+        // stable sort, so ties keep the configured order
+        Collections.sort(ranked, new Comparator<Member>() {
+            @Override
+            public int compare(Member first, Member second) {
+                long a = first.getScore();
+                long b = second.getScore();
+                return a < b ? -1 : (a == b ? 0 : 1);
+            }
+        });
+
+        return ranked;
+    }
+
+    private static class Member {
+        final WeatherProvider provider;
+        final LatencyTracker latency = new LatencyTracker();
+        volatile int consecutiveFailures = 0;
+
+        Member(WeatherProvider provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * Lower is better. Providers without samples score 0 so they get tried.
+         */
+        long getScore() {
+            return Math.max(0, latency.getPercentile(0.5)) + consecutiveFailures * FAILURE_PENALTY;
+        }
+
+        Callable<Channel> newCall(final String location, final String temperatureUnit) {
+            return new Callable<Channel>() {
+                @Override
+                public Channel call() throws Exception {
+                    long startedAt = System.currentTimeMillis();
+                    try {
+                        Channel channel = provider.fetch(location, temperatureUnit);
+                        latency.record(System.currentTimeMillis() - startedAt);
+                        consecutiveFailures = 0;
+                        return channel;
+
+                    } catch (Exception e) {
+                        ServiceException.Kind kind = ServiceException.from(e).getKind();
+                        if (kind == ServiceException.Kind.CANCELLED) {
+                            // lost the race, it would have taken at least this long
+                            latency.record(System.currentTimeMillis() - startedAt);
+                        } else if (kind != ServiceException.Kind.NOT_FOUND) {
+                            consecutiveFailures++;
+                        }
+                        throw e;
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.Flow;
+import net.firstweather.app.weatherapp.listener.WeatherServiceListener;
+
+/**
+ * What a forecast screen shows for its location, shared by the screens so they only differ in
+ * how they draw a channel.
+ *
+ * Stale-while-revalidate: whatever is cached for the location is shown right away, from memory
+ * or else from disk, and the location is refreshed from the network unless the cached entry is
+ * still fresh. Refreshes started by other screens or the prefetch are shown as they arrive.
+ *
+ * Not thread-safe: call it, and let the {@link net.firstweather.app.weatherapp.task.TaskScheduler}
+ * deliver to it, on the screen's thread.
+ */
+public class ForecastController implements WeatherServiceListener {
+
+    /**
+     * The screen the controller drives.
+     */
+    public interface Screen {
+        void showChannel(Channel channel);
+
+        void showLoading();
+
+        void hideLoading();
+
+        /**
+         * @param nothingToShow true when the screen has no forecast at all for the location
+         */
+        void showError(String message, boolean nothingToShow);
+
+        /**
+         * Called once per location the screen opens.
+         *
+         * @param fresh whether the cache could show it without going to the network
+         */
+        void onOpened(boolean fresh);
+    }
+
+    private final ForecastFeed forecastFeed;
+    private final WeatherCacheService cacheService;
+    private final Screen screen;
+
+    // results for the location from every refresh, replaced when the location changes
+    private Flow.Subscription forecastSubscription;
+
+    // location the displayed weather was requested for, used as the cache key
+    private String location = null;
+    private String temperatureUnit = null;
+
+    // channel currently on screen, possibly stale until the network refresh completes
+    private Channel displayedChannel = null;
+    private boolean refreshPending = false;
+    // whether the failure of the current refresh already fell back to the cache
+    private boolean fellBackToCache = false;
+
+    public ForecastController(ForecastFeed forecastFeed, WeatherCacheService cacheService, Screen screen) {
+        this.forecastFeed = forecastFeed;
+        this.cacheService = cacheService;
+        this.screen = screen;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Channel getDisplayedChannel() {
+        return displayedChannel;
+    }
+
+    /**
+     * Shows the location, e.g. when the screen starts or the user moved.
+     */
+    public void show(String location, String temperatureUnit) {
+        if (this.location == null || !WeatherCacheService.normalize(this.location).equals(WeatherCacheService.normalize(location))) {
+            // the forecast on screen is for somewhere else
+            displayedChannel = null;
+        }
+
+        this.location = location;
+        this.temperatureUnit = temperatureUnit;
+        fellBackToCache = false;
+
+        if (forecastSubscription != null) {
+            forecastSubscription.cancel();
+        }
+        forecastSubscription = forecastFeed.subscribe(location, temperatureUnit, this);
+
+        Channel cached = cacheService.peekFresh(location, temperatureUnit);
+
+        if (cached != null) {
+            screen.onOpened(true);
+            serviceSuccess(cached);
+            return;
+        }
+
+        refreshPending = true;
+
+        if (displayedChannel == null) {
+            // a cold start only has it on disk, refresh once it is known whether that is fresh
+            cacheService.load(location, new CachedWeatherListener(location));
+        } else {
+            forecastFeed.refresh(location, temperatureUnit);
+        }
+    }
+
+    /**
+     * Falls back to what is cached when the location could not be found out, e.g. geocoding failed.
+     *
+     * @param lastLocation location to fall back to if the screen has none yet, may be null
+     */
+    public void showFailure(String lastLocation, Exception exception) {
+        if (location == null) {
+            location = lastLocation;
+        }
+        fellBackToCache = false;
+
+        // whatever went wrong, the forecast of the last location is still worth showing
+        fail(exception, true);
+    }
+
+    /**
+     * Stops delivering to the screen, e.g. when it goes to the background.
+     */
+    public void stop() {
+        if (forecastSubscription != null) {
+            forecastSubscription.cancel();
+            forecastSubscription = null;
+        }
+        refreshPending = false;
+    }
+
+    @Override
+    public void serviceSuccess(Channel channel) {
+        screen.hideLoading();
+
+        if (!channel.equals(displayedChannel)) {
+            displayChannel(channel);
+        }
+
+        if (refreshPending && cacheService.peekFresh(location, temperatureUnit) == null) {
+            // an older forecast, e.g. the latest one the feed kept for a new subscriber
+            return;
+        }
+        refreshPending = false;
+    }
+
+    @Override
+    public void serviceFailure(Exception exception) {
+        switch (ServiceException.from(exception).getKind()) {
+            case CIRCUIT_OPEN:
+            case TIMEOUT:
+            case NETWORK:
+                // the upstream failed, or its circuit breaker is open and it was not even called
+                fail(exception, true);
+                break;
+            default:
+                // e.g. REJECTED, which the cache would only answer the same way
+                fail(exception, false);
+        }
+    }
+
+    private void fail(Exception exception, boolean fallBack) {
+        refreshPending = false;
+
+        // keep showing the cached data
+        if (displayedChannel != null) {
+            screen.hideLoading();
+            screen.showError(exception.getMessage(), false);
+            return;
+        }
+
+        if (location == null || !fallBack || fellBackToCache
+                || ServiceException.from(exception).getKind() == ServiceException.Kind.CACHE_MISS) {
+            // nothing cached to fall back to, or the cache was already asked
+            screen.hideLoading();
+            screen.showError(exception.getMessage(), true);
+        } else {
+            fellBackToCache = true;
+            screen.showError(exception.getMessage(), false);
+            cacheService.load(location, this);
+        }
+    }
+
+    private void displayChannel(Channel channel) {
+        displayedChannel = channel;
+        screen.showChannel(channel);
+    }
+
+    /**
+     * Renders what a cold start found cached, then refreshes unless it was fresh.
+     */
+    private class CachedWeatherListener implements WeatherServiceListener {
+        private final String requestedLocation;
+
+        CachedWeatherListener(String requestedLocation) {
+            this.requestedLocation = requestedLocation;
+        }
+
+        @Override
+        public void serviceSuccess(Channel channel) {
+            if (!requestedLocation.equals(location) || !refreshPending) {
+                // the location changed, or the network or another screen won the race
+                return;
+            }
+
+            // load() has put the entry in memory, where peekFresh can judge it
+            boolean fresh = cacheService.peekFresh(location, temperatureUnit) != null;
+            screen.onOpened(fresh);
+
+            if (fresh) {
+                ForecastController.this.serviceSuccess(channel);
+            } else {
+                displayChannel(channel);
+                forecastFeed.refresh(location, temperatureUnit);
+            }
+        }
+
+        @Override
+        public void serviceFailure(Exception exception) {
+            if (!requestedLocation.equals(location) || !refreshPending) {
+                return;
+            }
+
+            screen.onOpened(false);
+
+            // nothing cached yet, wait for the network
+            if (displayedChannel == null) {
+                screen.showLoading();
+            }
+            forecastFeed.refresh(location, temperatureUnit);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.Flow;
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.listener.WeatherServiceListener;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live forecasts per location: screens subscribe to a location and are handed a new result
+ * whenever a refresh, started by any of them or published from elsewhere, changes it.
+ *
+ * Every subscriber has its own demand. Results arriving while a subscriber has none left, or
+ * before the callback executor got to the previous one, are conflated: only the latest is kept,
+ * and a failure never replaces a channel still waiting to be delivered. A channel equal to the
+ * one a subscriber last received is not delivered again. A new subscriber is handed the latest
+ * channel of its location right away, if another subscriber or a refresh left one.
+ *
+ * A location is forgotten, latest channel included, once its last subscriber cancelled and no
+ * refresh of it is running.
+ *
+ * Failed refreshes are items too, so one bad refresh does not end the subscription; onError only
+ * reports a broken subscriber contract and onComplete is never called.
+ */
+public class ForecastFeed {
+    private final WeatherService weatherService;
+    private final WeatherCacheService cacheService;
+    private final Map<String, Topic> topics = new HashMap<>();
+
+    /**
+     * @param cacheService where refreshed channels are saved, may be null
+     */
+    public ForecastFeed(WeatherService weatherService, WeatherCacheService cacheService) {
+        this.weatherService = weatherService;
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * Publisher of the location's results in the temperature unit, shared by every subscriber.
+     */
+    public Flow.Publisher<Result<Channel>> forLocation(String location, String temperatureUnit) {
+        final String key = toKey(location, temperatureUnit);
+
+        return new Flow.Publisher<Result<Channel>>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super Result<Channel>> subscriber) {
+                add(key, subscriber);
+            }
+        };
+    }
+
+    /**
+     * Subscribes the listener, one result at a time, on the callback executor.
+     *
+     * @return the subscription, cancel it when the listener goes away
+     */
+    public Flow.Subscription subscribe(String location, String temperatureUnit, WeatherServiceListener listener) {
+        return add(toKey(location, temperatureUnit), new ListenerSubscriber(listener));
+    }
+
+    /**
+     * Fetches the location and publishes the result to its subscribers, on the callback executor.
+     * Only one refresh per location and unit runs at a time, later calls wait for its result.
+     */
+    public void refresh(final String location, String temperatureUnit) {
+        final String unit = toUnit(temperatureUnit);
+        final Topic topic;
+
+        synchronized (topics) {
+            // claimed under the lock, so the topic is not forgotten while the refresh runs
+            topic = topic(toKey(location, unit));
+            if (!topic.refreshing.compareAndSet(false, true)) {
+                return;
+            }
+        }
+
+        // shares the upstream request with anyone else refreshing the location through a service
+        weatherService.refreshWeather(location, unit, new ResultCallback<Channel>() {
+            @Override
+            public void onResult(Result<Channel> result) {
+                if (result.isSuccess() && cacheService != null) {
+                    // refreshes the TTL even when the forecast has not changed
+                    cacheService.save(location, result.getValue());
+                }
+
+                topic.refreshed(result);
+            }
+        });
+    }
+
+    /**
+     * Hands a channel fetched elsewhere, e.g. by a prefetch, to the location's subscribers.
+     * Nothing is kept for a location without any.
+     */
+    public void publish(String location, String temperatureUnit, Channel channel) {
+        Topic topic;
+        synchronized (topics) {
+            topic = topics.get(toKey(location, temperatureUnit));
+        }
+
+        if (topic != null) {
+            topic.publish(Result.success(channel));
+        }
+    }
+
+    public int getSubscriberCount(String location, String temperatureUnit) {
+        synchronized (topics) {
+            Topic topic = topics.get(toKey(location, temperatureUnit));
+            return topic == null ? 0 : topic.subscriptions.size();
+        }
+    }
+
+    /**
+     * Locations with a subscriber or a refresh running.
+     */
+    public int getTopicCount() {
+        synchronized (topics) {
+            return topics.size();
+        }
+    }
+
+    private FeedSubscription add(String key, Flow.Subscriber<? super Result<Channel>> subscriber) {
+        Topic topic;
+        FeedSubscription subscription;
+
+        synchronized (topics) {
+            // joined under the lock, so the topic is not forgotten in between
+            topic = topic(key);
+            subscription = new FeedSubscription(topic, subscriber);
+            topic.subscriptions.add(subscription);
+        }
+
+        // read after joining: a channel published since is offered to the subscription anyway
+        Result<Channel> latest = topic.latest;
+        if (latest != null) {
+            subscription.replay(latest);
+        } else {
+            subscription.drain();
+        }
+        return subscription;
+    }
+
+    /**
+     * Guarded by topics.
+     */
+    private Topic topic(String key) {
+        Topic topic = topics.get(key);
+        if (topic == null) {
+            topic = new Topic(key);
+            topics.put(key, topic);
+        }
+        return topic;
+    }
+
+    private static String toKey(String location, String temperatureUnit) {
+        return toUnit(temperatureUnit) + ":" + WeatherCacheService.normalize(location);
+    }
+
+    private static String toUnit(String temperatureUnit) {
+        return "f".equalsIgnoreCase(temperatureUnit) ? "f" : "c";
+    }
+
+    private class Topic {
+        final String key;
+        final CopyOnWriteArrayList<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        // the last channel published, for subscribers still to come
+        volatile Result<Channel> latest = null;
+
+        Topic(String key) {
+            this.key = key;
+        }
+
+        void publish(Result<Channel> result) {
+            if (result.isSuccess()) {
+                latest = result;
+            }
+
+            for (FeedSubscription subscription : subscriptions) {
+                subscription.offer(result);
+            }
+        }
+
+        void refreshed(Result<Channel> result) {
+            // a subscriber handed the result may already start the next refresh
+            refreshing.set(false);
+            publish(result);
+            prune();
+        }
+
+        void remove(FeedSubscription subscription) {
+            subscriptions.remove(subscription);
+            prune();
+        }
+
+        /**
+         * Forgets the topic unless a subscriber or a refresh still needs it.
+         */
+        private void prune() {
+            synchronized (topics) {
+                if (subscriptions.isEmpty() && !refreshing.get() && topics.get(key) == this) {
+                    topics.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivery to one subscriber. Any thread may offer results, request or cancel; the subscriber
+     * is only ever called from the drain loop, which runs on the callback executor and never on
+     * two threads at once.
+     */
+    private class FeedSubscription implements Flow.Subscription {
+        private final Topic topic;
+        private final Flow.Subscriber<? super Result<Channel>> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicReference<Result<Channel>> pending = new AtomicReference<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile IllegalArgumentException invalidRequest = null;
+
+        // guarded by this, whether anything was offered yet
+        private boolean offered = false;
+
+        // only touched by the drain loop
+        private boolean subscribed = false;
+        private Channel lastDelivered = null;
+
+        private final Runnable drainLoop = new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        };
+
+        FeedSubscription(Topic topic, Flow.Subscriber<? super Result<Channel>> subscriber) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " items, must be positive");
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE) {
+                        return;
+                    }
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            pending.set(null);
+            topic.remove(this);
+        }
+
+        void offer(Result<Channel> result) {
+            synchronized (this) {
+                offered = true;
+
+                Result<Channel> current = pending.get();
+                if (!result.isSuccess() && current != null && current.isSuccess()) {
+                    // the undelivered forecast is worth more than the news that a refresh failed
+                    return;
+                }
+                pending.set(result);
+            }
+
+            drain();
+        }
+
+        /**
+         * Offers a channel published before the subscription, unless a newer result was already offered.
+         */
+        void replay(Result<Channel> result) {
+            synchronized (this) {
+                if (!offered) {
+                    offered = true;
+                    pending.set(result);
+                }
+            }
+
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() == 0) {
+                TaskScheduler.getInstance().deliver(CancellationToken.NONE, drainLoop);
+            }
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+
+            do {
+                if (!cancelled && !subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+
+                if (!cancelled && invalidRequest != null) {
+                    cancel();
+                    subscriber.onError(invalidRequest);
+                }
+
+                while (!cancelled && requested.get() > 0) {
+                    Result<Channel> result = pending.getAndSet(null);
+                    if (result == null) {
+                        break;
+                    }
+
+                    if (result.isSuccess()) {
+                        if (result.getValue().equals(lastDelivered)) {
+                            continue;
+                        }
+                        lastDelivered = result.getValue();
+                    }
+
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    subscriber.onNext(result);
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    /**
+     * Asks for one result at a time, so a listener busy on the callback executor only ever has
+     * the latest one waiting.
+     */
+    private static class ListenerSubscriber implements Flow.Subscriber<Result<Channel>> {
+        private final WeatherServiceListener listener;
+        private Flow.Subscription subscription;
+
+        ListenerSubscriber(WeatherServiceListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Result<Channel> result) {
+            if (result.isSuccess()) {
+                listener.serviceSuccess(result.getValue());
+            } else {
+                listener.serviceFailure(result.getError());
+            }
+
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // only for a request of no items, which this subscriber never makes
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent in-memory store of {@link CacheEntry} snapshots keyed by normalized location.
+ *
+ * Keys are spread over segments. Each segment publishes an immutable map through a volatile
+ * field, so reads take no lock and never see a half-applied write; writers copy their segment's
+ * map under the segment lock and swap the copy in. Writes are rare next to reads, and a segment
+ * holds only capacity / segments entries, so the copies stay small.
+ *
+ * A full segment evicts by second chance (CLOCK): a read only sets a flag on the entry, and the
+ * oldest entry not read since the last sweep is evicted, which approximates LRU without
+ * readers writing to shared state on every hit.
+ */
+public class ForecastStore {
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Segment[] segments;
+
+    public ForecastStore(int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param capacity         entries kept, split evenly across the segments
+     * @param concurrencyLevel writers expected at once, rounded up to a power of two segments
+     */
+    public ForecastStore(int capacity, int concurrencyLevel) {
+        if (capacity < 1 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Capacity " + capacity + " and concurrency level " + concurrencyLevel);
+        }
+
+        int count = 1;
+        while (count < concurrencyLevel && count < capacity) {
+            count <<= 1;
+        }
+
+        segments = new Segment[count];
+        int segmentCapacity = (capacity + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Looks the entry up and counts a hit or a miss.
+     */
+    public CacheEntry get(String key) {
+        return segmentFor(key).get(key, true);
+    }
+
+    /**
+     * Looks the entry up without counting it or marking it as used.
+     */
+    public CacheEntry peek(String key) {
+        return segmentFor(key).get(key, false);
+    }
+
+    /**
+     * Publishes the entry, replacing the one stored for its location.
+     */
+    public void put(CacheEntry entry) {
+        segmentFor(entry.getLocation()).put(entry);
+    }
+
+    /**
+     * Replaces the stored entry by a stale copy.
+     *
+     * @return the stale entry, or null if nothing is stored for the key
+     */
+    public CacheEntry markStale(String key) {
+        return segmentFor(key).markStale(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.nodes.size();
+        }
+        return size;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public long getHitCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.hitCount.get();
+        }
+        return count;
+    }
+
+    public long getMissCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.missCount.get();
+        }
+        return count;
+    }
+
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.evictionCount.get();
+        }
+        return count;
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16; // let the high bits pick the segment too
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static class Segment {
+        final int capacity;
+        final AtomicLong hitCount = new AtomicLong();
+        final AtomicLong missCount = new AtomicLong();
+        final AtomicLong evictionCount = new AtomicLong();
+
+        // never modified once published, in insertion order for the eviction sweep
+        volatile Map<String, Node> nodes = Collections.emptyMap();
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        CacheEntry get(String key, boolean record) {
+            Node node = nodes.get(key);
+
+            if (!record) {
+                return node == null ? null : node.entry;
+            }
+
+            if (node == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            hitCount.incrementAndGet();
+            if (!node.referenced) {
+                // only the first read since the last sweep writes
+                node.referenced = true;
+            }
+            return node.entry;
+        }
+
+        synchronized void put(CacheEntry entry) {
+            LinkedHashMap<String, Node> next = new LinkedHashMap<>(nodes);
+            next.remove(entry.getLocation());
+            next.put(entry.getLocation(), new Node(entry, false));
+
+            if (next.size() > capacity) {
+                evict(next, entry.getLocation());
+            }
+
+            nodes = Collections.unmodifiableMap(next);
+        }
+
+        synchronized CacheEntry markStale(String key) {
+            Node node = nodes.get(key);
+            if (node == null) {
+                return null;
+            }
+
+            CacheEntry stale = node.entry.asStale();
+
+            // keeps its place and its reference flag
+            LinkedHashMap<String, Node> next = new LinkedHashMap<>(nodes);
+            next.put(key, new Node(stale, node.referenced));
+
+            nodes = Collections.unmodifiableMap(next);
+            return stale;
+        }
+
+        /**
+         * Sweeps from the oldest entry, giving read ones a second chance at the end of the order.
+         * The entry just written is never the one evicted.
+         */
+        private void evict(LinkedHashMap<String, Node> next, String written) {
+            while (next.size() > capacity) {
+                Iterator<Map.Entry<String, Node>> iterator = next.entrySet().iterator();
+                Map.Entry<String, Node> oldest = iterator.next();
+                iterator.remove();
+
+                Node node = oldest.getValue();
+                if (oldest.getKey().equals(written)) {
+                    next.put(oldest.getKey(), node);
+                } else if (node.referenced) {
+                    node.referenced = false;
+                    next.put(oldest.getKey(), node);
+                } else {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class Node {
+        final CacheEntry entry;
+        volatile boolean referenced;
+
+        Node(CacheEntry entry, boolean referenced) {
+            this.entry = entry;
+            this.referenced = referenced;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Yoel Nunez <dev@nunez.guru>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package net.firstweather.app.weatherapp.service;
+
+import com.google.gson.stream.JsonReader;
+
+import net.firstweather.app.weatherapp.data.JSONStreams;
+import net.firstweather.app.weatherapp.data.LocationResult;
+import net.firstweather.app.weatherapp.listener.GeocodingServiceListener;
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+public class GoogleMapsGeocodingService {
+    private static final LatencyTracker latency = new LatencyTracker();
+    // well below the key's quota, a fix rarely needs more than one lookup
+    private static final RateLimiter rateLimiter = new RateLimiter(1, 5);
+    private static final CircuitBreaker circuitBreaker = new CircuitBreaker("Google geocoding");
+
+    private GeocodingServiceListener listener;
+    private ReverseGeocodingCache cache;
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+    private RequestPolicy requestPolicy = new RequestPolicy();
+
+    public GoogleMapsGeocodingService(GeocodingServiceListener listener) {
+        this(listener, null);
+    }
+
+    public GoogleMapsGeocodingService(GeocodingServiceListener listener, ReverseGeocodingCache cache) {
+        this.listener = listener;
+        this.cache = cache;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    public void setRequestPolicy(RequestPolicy requestPolicy) {
+        this.requestPolicy = requestPolicy;
+    }
+
+    /**
+     * Limiter shared by every geocoding request, for its wait time metrics.
+     */
+    public static RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Breaker shared by every geocoding request, for its state transition metrics.
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void refreshLocation(double latitude, double longitude) {
+        refreshLocation(latitude, longitude, new ResultCallback<LocationResult>() {
+            @Override
+            public void onResult(Result<LocationResult> result) {
+                if (result.isSuccess()) {
+                    listener.geocodeSuccess(result.getValue());
+                } else {
+                    listener.geocodeFailure(result.getError());
+                }
+            }
+        });
+    }
+
+    /**
+     * @param callback called on the callback executor with this request's result; synchronously if the
+     *                 fix landed in an already resolved cell
+     */
+    public ResultFuture<LocationResult> refreshLocation(final double latitude, final double longitude, ResultCallback<LocationResult> callback) {
+        if (cache != null) {
+            LocationResult cached = cache.get(latitude, longitude);
+
+            if (cached != null) {
+                // fix landed in an already resolved cell
+                Result<LocationResult> result = Result.success(cached);
+                ResultFuture<LocationResult> future = new ResultFuture<>();
+                future.complete(result);
+                callback.onResult(result);
+                return future;
+            }
+        }
+
+        final RequestPolicy policy = requestPolicy;
+
+        return new RequestTask<LocationResult>(callback) {
+            @Override
+            protected LocationResult request() throws Exception {
+
+                final String endpoint = String.format("https://maps.googleapis.com/maps/api/geocode/json?latlng=%s,%s&key=%s", latitude, longitude, API_KEY);
+
+                LocationResult locationResult = circuitBreaker.call(new UpstreamCall<>(new Callable<LocationResult>() {
+                    @Override
+                    public LocationResult call() throws Exception {
+                        HttpClient.Response response = HttpClient.getInstance().get(endpoint, policy.getConnectTimeout(), policy.getReadTimeout());
+
+                        LocationResult locationResult;
+                        try {
+                            locationResult = parseFirstResult(JSONStreams.newReader(response.getBody()));
+                        } finally {
+                            response.close();
+                        }
+
+                        if (locationResult == null) {
+                            throw new ServiceException(ServiceException.Kind.NOT_FOUND, "Could not reverse geocode " + latitude + ", " + longitude);
+                        }
+
+                        return locationResult;
+                    }
+                }, policy, latency, rateLimiter, API_KEY));
+
+                if (cache != null) {
+                    cache.put(latitude, longitude, locationResult);
+                }
+
+                return locationResult;
+            }
+
+        }.start(Pool.NETWORK, cancellationToken);
+    }
+
+    /**
+     * Reads only the first entry of {"results": [...]}, the remaining results are skipped.
+     *
+     * @return the first result or null if there were none
+     */
+    private static LocationResult parseFirstResult(JsonReader reader) throws IOException {
+        LocationResult locationResult = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("results")) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (locationResult == null) {
+                    locationResult = new LocationResult();
+                    locationResult.populate(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return locationResult;
+    }
+
+    // OPTIONAL: Your Google Maps API KEY
+    private static final String API_KEY = "";
+}
@@ -0,0 +1,314 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client shared by the weather and geocoding services.
+ *
+ * Connections are kept alive and reused once a response body has been read to the end, bodies
+ * are requested gzip compressed, and responses carrying an ETag or Last-Modified validator are
+ * remembered so the next GET is conditional and a 304 is answered from memory.
+ */
+public class HttpClient {
+    private static final int VALIDATOR_CAPACITY = 16;
+    private static final int BUFFER_SIZE = 8192;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    private static final HttpClient instance = new HttpClient();
+
+    private final LinkedHashMap<String, CachedResponse> validators = new LinkedHashMap<String, CachedResponse>(VALIDATOR_CAPACITY, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > VALIDATOR_CAPACITY;
+        }
+    };
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong bytesOnWire = new AtomicLong();
+
+    public static HttpClient getInstance() {
+        return instance;
+    }
+
+    /**
+     * Percent-encodes a query parameter value, with spaces as %20 rather than the form encoded +.
+     */
+    public static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported
+        }
+    }
+
+    public Response get(String endpoint) throws IOException {
+        return get(endpoint, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * @param connectTimeout milliseconds to establish the connection
+     * @param readTimeout    milliseconds any single read may block
+     */
+    public Response get(String endpoint, int connectTimeout, int readTimeout) throws IOException {
+        URL url;
+        try {
+            url = URI.create(endpoint).toURL();
+        } catch (IllegalArgumentException e) {
+            // not an absolute URI, failed the way new URL(String) did
+            throw (MalformedURLException) new MalformedURLException(e.getMessage()).initCause(e);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        CachedResponse cached;
+        synchronized (validators) {
+            cached = validators.get(endpoint);
+        }
+
+        if (cached != null) {
+            if (cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+        }
+
+        requestCount.incrementAndGet();
+
+        int statusCode = connection.getResponseCode();
+
+        if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            notModifiedCount.incrementAndGet();
+            drain(connection.getErrorStream());
+            return new Response(statusCode, true, new ByteArrayInputStream(cached.body), null);
+        }
+
+        if (statusCode < 200 || statusCode >= 300) {
+            drain(connection.getErrorStream());
+            throw new HttpStatusException(statusCode, url.getHost());
+        }
+
+        CountingInputStream wire = new CountingInputStream(connection.getInputStream());
+        InputStream body = "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(wire, BUFFER_SIZE) : wire;
+
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+
+        if (etag != null || lastModified != null) {
+            body = new RecordingInputStream(body, endpoint, etag, lastModified);
+        }
+
+        return new Response(statusCode, false, body, wire);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * Total response body bytes received, as transferred (i.e. compressed).
+     */
+    public long getBytesOnWire() {
+        return bytesOnWire.get();
+    }
+
+    private static void drain(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (stream.read(buffer) != -1) {
+                // reading the body to the end lets the connection be reused
+            }
+            stream.close();
+        } catch (IOException e) {
+            // connection is not reusable, nothing else to do
+        }
+    }
+
+    public class Response implements Closeable {
+        private final int statusCode;
+        private final boolean notModified;
+        private final InputStream body;
+        private final CountingInputStream wire;
+
+        Response(int statusCode, boolean notModified, InputStream body, CountingInputStream wire) {
+            this.statusCode = statusCode;
+            this.notModified = notModified;
+            this.body = body;
+            this.wire = wire;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * True if the server answered 304 and the body is replayed from the previous response.
+         */
+        public boolean isNotModified() {
+            return notModified;
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        public long getBytesOnWire() {
+            return wire == null ? 0 : wire.count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (wire != null) {
+                // consume what the parser skipped so the connection goes back to the pool
+                drain(body);
+                bytesOnWire.addAndGet(wire.count);
+            }
+            body.close();
+        }
+    }
+
+    public static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        HttpStatusException(int statusCode, String host) {
+            super("HTTP " + statusCode + " for " + host);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Server errors and throttling are worth retrying, other client errors are not.
+         */
+        public boolean isRetryable() {
+            return statusCode >= 500 || statusCode == 429 || statusCode == 408;
+        }
+    }
+
+    private static class CachedResponse {
+        final String etag;
+        final String lastModified;
+        final byte[] body;
+
+        CachedResponse(String etag, String lastModified, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Keeps a copy of the decoded body while it is read and stores it with its validators once
+     * the end of the stream is reached.
+     */
+    private class RecordingInputStream extends FilterInputStream {
+        private final String endpoint;
+        private final String etag;
+        private final String lastModified;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream(BUFFER_SIZE);
+        private boolean complete = false;
+
+        RecordingInputStream(InputStream in, String endpoint, String etag, String lastModified) {
+            super(in);
+            this.endpoint = endpoint;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value == -1) {
+                store();
+            } else {
+                copy.write(value);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read == -1) {
+                store();
+            } else {
+                copy.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        private void store() {
+            if (complete) {
+                return;
+            }
+            complete = true;
+
+            synchronized (validators) {
+                validators.put(endpoint, new CachedResponse(etag, lastModified, copy.toByteArray()));
+            }
+        }
+    }
+}
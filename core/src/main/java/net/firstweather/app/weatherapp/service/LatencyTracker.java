@@ -0,0 +1,49 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent successful calls to one upstream.
+ */
+public class LatencyTracker {
+    private static final int DEFAULT_WINDOW = 64;
+
+    private final long[] samples;
+    private int count = 0;
+    private int next = 0;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public LatencyTracker(int window) {
+        samples = new long[window];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the latency below which the given fraction of recorded calls completed, or -1 if nothing was recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,234 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used map of strings to values, kept in one file: read once on the DISK pool
+ * when it is created, and written back there after every change.
+ *
+ * Layout: format version (int), entry count (int), then every entry's key (UTF) and value,
+ * eldest first.
+ *
+ * Until the file has been read, get, put and remove wait for it on the calling thread, so only
+ * call them from worker threads. {@link #peek} never waits and finds nothing until then.
+ */
+final class PersistentMap<V> {
+    private static final int BUFFER_SIZE = 8192;
+
+    interface Format<V> {
+        V read(DataInput data) throws IOException;
+
+        void write(DataOutput data, V value) throws IOException;
+    }
+
+    private final File file;
+    private final int capacity;
+    private final int formatVersion;
+    private final Format<V> format;
+
+    // guarded by this
+    private final LinkedHashMap<String, V> entries;
+    private boolean loaded = false;
+
+    PersistentMap(File file, int capacity, int formatVersion, Format<V> format) {
+        this.file = file;
+        this.capacity = capacity;
+        this.formatVersion = formatVersion;
+        this.format = format;
+        this.entries = newEntries();
+
+        load();
+    }
+
+    /**
+     * @return the value, or null if there is none or the file is still being read
+     */
+    synchronized V peek(String key) {
+        return loaded ? entries.get(key) : null;
+    }
+
+    synchronized V get(String key) {
+        awaitLoaded();
+        return entries.get(key);
+    }
+
+    /**
+     * @return the previous value, the file is only written if it was a different one
+     */
+    synchronized V put(String key, V value) {
+        awaitLoaded();
+
+        V previous = entries.put(key, value);
+        if (!value.equals(previous)) {
+            persist();
+        }
+        return previous;
+    }
+
+    synchronized V remove(String key) {
+        awaitLoaded();
+
+        V previous = entries.remove(key);
+        if (previous != null) {
+            persist();
+        }
+        return previous;
+    }
+
+    /**
+     * Forgets every entry in memory, the file keeps them until the next change.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private LinkedHashMap<String, V> newEntries() {
+        return new LinkedHashMap<String, V>(capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private void awaitLoaded() {
+        boolean interrupted = false;
+
+        while (!loaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load() {
+        new Task<Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                Map<String, V> read = null;
+                try {
+                    read = read();
+                } finally {
+                    loaded(read);
+                }
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result, Exception error) {
+                if (error instanceof FileNotFoundException) {
+                    // nothing resolved yet
+                    return;
+                }
+
+                if (error != null) {
+                    error.printStackTrace();
+                }
+
+                // the DISK queue was full, go on without what is on disk
+                loaded(null);
+            }
+        }.execute(Pool.DISK, CancellationToken.NONE);
+    }
+
+    private synchronized void loaded(Map<String, V> read) {
+        if (loaded) {
+            return;
+        }
+
+        if (read != null) {
+            entries.putAll(read);
+        }
+
+        loaded = true;
+        notifyAll();
+    }
+
+    private Map<String, V> read() throws IOException {
+        Map<String, V> read = new LinkedHashMap<>();
+
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if (inputStream.readInt() != formatVersion) {
+                return read;
+            }
+
+            int count = inputStream.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = inputStream.readUTF();
+                read.put(key, format.read(inputStream));
+            }
+        } finally {
+            inputStream.close();
+        }
+
+        return read;
+    }
+
+    private void persist() {
+        final Map<String, V> snapshot = new LinkedHashMap<>(entries);
+
+        new Task<Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                write(snapshot);
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result, Exception error) {
+                if (error != null) {
+                    error.printStackTrace();
+                }
+            }
+        }.execute(Pool.DISK, CancellationToken.NONE);
+    }
+
+    private void write(Map<String, V> snapshot) throws IOException {
+        // a reader never sees a half written file
+        File temporary = new File(file.getPath() + ".tmp");
+
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE));
+        try {
+            outputStream.writeInt(formatVersion);
+            outputStream.writeInt(snapshot.size());
+
+            for (Map.Entry<String, V> entry : snapshot.entrySet()) {
+                outputStream.writeUTF(entry.getKey());
+                format.write(outputStream, entry.getValue());
+            }
+        } finally {
+            outputStream.close();
+        }
+
+        // renameTo does not replace an existing file everywhere
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
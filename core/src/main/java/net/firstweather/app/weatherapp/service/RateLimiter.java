@@ -0,0 +1,236 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets in front of one upstream API, one per API key, so a batch refresh cannot use up
+ * the key's quota.
+ *
+ * Requests that find the bucket empty queue for a permit. Foreground requests, made for a screen
+ * the user is looking at, are admitted before any waiting background one such as a prefetch;
+ * requests of the same priority are admitted in arrival order. Whether a request is admitted is
+ * decided from the clock and the queue alone, and waiting requests wait on the clock too, so a
+ * test driving a fake {@link Clock} sees the same decisions on every run.
+ */
+public class RateLimiter {
+    public enum Priority {
+        FOREGROUND,
+        BACKGROUND
+    }
+
+    private final double permitsPerNano;
+    private final int burst;
+    private final Clock clock;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private final Map<Priority, Stats> stats = new EnumMap<>(Priority.class);
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, Clock.SYSTEM);
+    }
+
+    /**
+     * @param permitsPerSecond rate the bucket of every key refills at
+     * @param burst            permits a key can save up while idle, its bucket starts full
+     */
+    public RateLimiter(double permitsPerSecond, int burst, Clock clock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate " + permitsPerSecond + " and burst " + burst);
+        }
+
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.clock = clock;
+
+        for (Priority priority : Priority.values()) {
+            stats.put(priority, new Stats());
+        }
+    }
+
+    /**
+     * Takes a permit if one is free and no request of the same or a higher priority is waiting.
+     * Never waits and never counts as rejected.
+     */
+    public boolean tryAcquire(String key, Priority priority) {
+        Bucket bucket = bucketFor(key);
+
+        synchronized (bucket) {
+            bucket.refill(clock.nanoTime());
+
+            if (bucket.getWait(bucket.countAhead(priority, Long.MAX_VALUE)) > 0) {
+                return false;
+            }
+
+            bucket.tokens -= 1;
+            record(priority, 0);
+            return true;
+        }
+    }
+
+    /**
+     * Waits for a permit behind the requests ahead in the key's queue.
+     *
+     * @param timeout milliseconds the caller can wait at most
+     * @throws ServiceException REJECTED as soon as the permit is known not to be free in time,
+     *                          without waiting out the timeout
+     */
+    public void acquire(String key, Priority priority, long timeout) throws ServiceException, InterruptedException {
+        Bucket bucket = bucketFor(key);
+        long queuedAt = clock.nanoTime();
+        long deadline = queuedAt + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout));
+
+        synchronized (bucket) {
+            Ticket ticket = new Ticket(priority, bucket.nextSequence++);
+            bucket.queue.add(ticket);
+
+            try {
+                while (true) {
+                    long now = clock.nanoTime();
+                    bucket.refill(now);
+
+                    long wait = bucket.getWait(bucket.countAhead(priority, ticket.sequence));
+                    if (wait == 0) {
+                        bucket.tokens -= 1;
+                        record(priority, now - queuedAt);
+                        return;
+                    }
+
+                    if (now + wait > deadline) {
+                        stats.get(priority).rejected.incrementAndGet();
+                        throw new ServiceException(ServiceException.Kind.REJECTED,
+                                "Rate limited, no permit for " + TimeUnit.NANOSECONDS.toMillis(wait) + " ms");
+                    }
+
+                    // woken early when a request ahead leaves the queue
+                    clock.waitOn(bucket, wait);
+                }
+            } finally {
+                bucket.queue.remove(ticket);
+                bucket.notifyAll();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        synchronized (buckets) {
+            for (Bucket bucket : buckets.values()) {
+                synchronized (bucket) {
+                    depth += bucket.queue.size();
+                }
+            }
+        }
+        return depth;
+    }
+
+    public long getAdmittedCount(Priority priority) {
+        return stats.get(priority).admitted.get();
+    }
+
+    /**
+     * Requests that gave up because their permit would not have been free before their timeout.
+     */
+    public long getRejectedCount(Priority priority) {
+        return stats.get(priority).rejected.get();
+    }
+
+    public long getAverageWaitMillis(Priority priority) {
+        Stats priorityStats = stats.get(priority);
+        long admitted = priorityStats.admitted.get();
+        return admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(priorityStats.totalWait.get() / admitted);
+    }
+
+    public long getMaxWaitMillis(Priority priority) {
+        return TimeUnit.NANOSECONDS.toMillis(stats.get(priority).maxWait.get());
+    }
+
+    private void record(Priority priority, long wait) {
+        Stats priorityStats = stats.get(priority);
+
+        priorityStats.admitted.incrementAndGet();
+        priorityStats.totalWait.addAndGet(wait);
+
+        long max;
+        do {
+            max = priorityStats.maxWait.get();
+        } while (wait > max && !priorityStats.maxWait.compareAndSet(max, wait));
+    }
+
+    private Bucket bucketFor(String key) {
+        String name = key == null ? "" : key;
+
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(name);
+            if (bucket == null) {
+                bucket = new Bucket(clock.nanoTime());
+                buckets.put(name, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Guarded by its own monitor.
+     */
+    private class Bucket {
+        // waiting requests, in no particular order
+        final List<Ticket> queue = new ArrayList<>();
+        double tokens;
+        long refilledAt;
+        long nextSequence = 0;
+
+        Bucket(long now) {
+            tokens = burst;
+            refilledAt = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+        }
+
+        /**
+         * Requests that will be admitted before one of the priority that joined the queue with the sequence.
+         */
+        int countAhead(Priority priority, long sequence) {
+            int ahead = 0;
+            for (Ticket ticket : queue) {
+                int order = ticket.priority.compareTo(priority);
+                if (order < 0 || (order == 0 && ticket.sequence < sequence)) {
+                    ahead++;
+                }
+            }
+            return ahead;
+        }
+
+        /**
+         * @return nanoseconds until there is a permit for every request ahead and one more, 0 if there is now
+         */
+        long getWait(int ahead) {
+            double missing = ahead + 1 - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+        }
+    }
+
+    private static class Ticket {
+        final Priority priority;
+        final long sequence;
+
+        Ticket(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Stats {
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong totalWait = new AtomicLong();
+        final AtomicLong maxWait = new AtomicLong();
+    }
+}
@@ -0,0 +1,118 @@
+package net.firstweather.app.weatherapp.service;
+
+/**
+ * Deadlines, retries, hedging and rate limit priority applied to every call to an upstream API.
+ */
+public class RequestPolicy {
+    private int connectTimeout = HttpClient.DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = HttpClient.DEFAULT_READ_TIMEOUT;
+    private long deadline = 15000;
+    private int maxAttempts = 3;
+    private long initialBackoff = 250;
+    private long maxBackoff = 2000;
+    private boolean hedgingEnabled = true;
+    private double hedgePercentile = 0.95;
+    private long defaultHedgeDelay = 2000;
+    private long minHedgeDelay = 300;
+    private RateLimiter.Priority priority = RateLimiter.Priority.FOREGROUND;
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Milliseconds after which the call gives up altogether, retries and hedges included.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * Latency percentile after which a second, hedged request is sent.
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * Hedge delay used until enough latencies have been recorded.
+     */
+    public long getDefaultHedgeDelay() {
+        return defaultHedgeDelay;
+    }
+
+    public void setDefaultHedgeDelay(long defaultHedgeDelay) {
+        this.defaultHedgeDelay = defaultHedgeDelay;
+    }
+
+    public long getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+
+    public void setMinHedgeDelay(long minHedgeDelay) {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    /**
+     * Place in the upstream's rate limit queue, BACKGROUND for calls no screen is waiting for.
+     */
+    public RateLimiter.Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(RateLimiter.Priority priority) {
+        this.priority = priority;
+    }
+}
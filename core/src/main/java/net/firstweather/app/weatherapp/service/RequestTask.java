@@ -0,0 +1,59 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.Task;
+
+/**
+ * A task carrying its own {@link Result}: the future completes on the worker thread, the
+ * callback runs on the callback executor.
+ */
+abstract class RequestTask<T> extends Task<Result<T>> {
+    private final ResultFuture<T> future = new ResultFuture<>();
+    private final ResultCallback<T> callback;
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+
+    RequestTask(ResultCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    protected abstract T request() throws Exception;
+
+    ResultFuture<T> start(Pool pool, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        cancellationToken.register(future);
+        execute(pool, cancellationToken);
+        return future;
+    }
+
+    @Override
+    protected final Result<T> doInBackground() {
+        Result<T> result;
+
+        try {
+            result = Result.success(request());
+        } catch (Exception e) {
+            result = Result.failure(e);
+        }
+
+        future.complete(result);
+        cancellationToken.unregister(future);
+
+        return result;
+    }
+
+    @Override
+    protected final void onPostExecute(Result<T> result, Exception error) {
+        if (error != null) {
+            // never ran, e.g. the pool's queue was full
+            result = Result.failure(error);
+            future.complete(result);
+            cancellationToken.unregister(future);
+        }
+
+        if (callback != null) {
+            callback.onResult(result);
+        }
+    }
+}
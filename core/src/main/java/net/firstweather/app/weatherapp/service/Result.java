@@ -0,0 +1,38 @@
+package net.firstweather.app.weatherapp.service;
+
+/**
+ * Outcome of one service request: either a value or a typed failure.
+ */
+public final class Result<T> {
+    private final T value;
+    private final ServiceException error;
+
+    private Result(T value, ServiceException error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> Result<T> success(T value) {
+        return new Result<>(value, null);
+    }
+
+    public static <T> Result<T> failure(ServiceException error) {
+        return new Result<>(null, error);
+    }
+
+    public static <T> Result<T> failure(Exception error) {
+        return new Result<>(null, ServiceException.from(error));
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public ServiceException getError() {
+        return error;
+    }
+}
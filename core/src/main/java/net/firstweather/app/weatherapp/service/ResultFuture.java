@@ -0,0 +1,73 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future of a single request, completed by the service once the request's {@link Result} is known.
+ */
+public class ResultFuture<T> implements Future<Result<T>> {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Result<T> result;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @return false if the future was already completed or cancelled
+     */
+    public boolean complete(Result<T> result) {
+        synchronized (done) {
+            if (done.getCount() == 0) {
+                return false;
+            }
+            this.result = result;
+            done.countDown();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (done) {
+            if (done.getCount() == 0) {
+                return false;
+            }
+            cancelled = true;
+            done.countDown();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public Result<T> get() throws InterruptedException {
+        done.await();
+        return resultOrThrow();
+    }
+
+    @Override
+    public Result<T> get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return resultOrThrow();
+    }
+
+    private Result<T> resultOrThrow() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return result;
+    }
+}
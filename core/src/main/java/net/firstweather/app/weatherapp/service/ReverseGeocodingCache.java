@@ -0,0 +1,110 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.LocationResult;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent reverse-geocoding cache. Fixes are quantized to a geohash cell, so moving a few
+ * metres resolves to the same address without asking the Geocoding API again.
+ *
+ * The cache file is read on the DISK pool; {@link #get} is called on the main thread and never
+ * waits for it, a fix arriving before it has been read is resolved by the API.
+ */
+public class ReverseGeocodingCache {
+    public static final int DEFAULT_PRECISION = 7; // cells of roughly 150 x 150 m
+    public static final long DEFAULT_TIME_TO_LIVE = 7L * 24 * 60 * 60 * 1000;
+    private static final int CAPACITY = 64;
+    private static final int FORMAT_VERSION = 1;
+    private static final String CACHE_FILE = "geocoding.data";
+
+    private static final Map<File, ReverseGeocodingCache> instances = new HashMap<>();
+
+    private static final PersistentMap.Format<ResolvedAddress> FORMAT = new PersistentMap.Format<ResolvedAddress>() {
+        @Override
+        public ResolvedAddress read(DataInput data) throws IOException {
+            long resolvedAt = data.readLong();
+            LocationResult result = new LocationResult();
+            result.populate(data);
+            return new ResolvedAddress(result, resolvedAt);
+        }
+
+        @Override
+        public void write(DataOutput data, ResolvedAddress address) throws IOException {
+            data.writeLong(address.resolvedAt);
+            address.result.write(data);
+        }
+    };
+
+    // cells written with another precision are simply never hit and age out
+    private final PersistentMap<ResolvedAddress> entries;
+    private volatile int precision = DEFAULT_PRECISION;
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * @return the cache kept in the directory, one per directory
+     */
+    public static synchronized ReverseGeocodingCache getInstance(File directory) {
+        File file = new File(directory, CACHE_FILE).getAbsoluteFile();
+
+        ReverseGeocodingCache instance = instances.get(file);
+        if (instance == null) {
+            instance = new ReverseGeocodingCache(file);
+            instances.put(file, instance);
+        }
+        return instance;
+    }
+
+    ReverseGeocodingCache(File file) {
+        this.entries = new PersistentMap<>(file, CAPACITY, FORMAT_VERSION, FORMAT);
+    }
+
+    public synchronized void setPrecision(int precision) {
+        if (precision != this.precision) {
+            // cells of the old precision can never match again
+            entries.clear();
+            this.precision = precision;
+        }
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the address resolved for the cell containing the fix, or null if it is unknown,
+     * expired or the cache file has not been read yet. Never waits.
+     */
+    public LocationResult get(double latitude, double longitude) {
+        ResolvedAddress entry = entries.peek(Geohash.encode(latitude, longitude, precision));
+
+        if (entry == null || System.currentTimeMillis() - entry.resolvedAt >= timeToLive) {
+            // an expired entry is replaced once the API resolved the cell again
+            return null;
+        }
+
+        return entry.result;
+    }
+
+    /**
+     * Waits for the cache file to be read, call it from a worker thread.
+     */
+    public void put(double latitude, double longitude, LocationResult result) {
+        entries.put(Geohash.encode(latitude, longitude, precision), new ResolvedAddress(result, System.currentTimeMillis()));
+    }
+
+    private static class ResolvedAddress {
+        final LocationResult result;
+        final long resolvedAt;
+
+        ResolvedAddress(LocationResult result, long resolvedAt) {
+            this.result = result;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Typed failure of a single service request.
+ */
+public class ServiceException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        NOT_FOUND,
+        NETWORK,
+        TIMEOUT,
+        PARSE,
+        CACHE_MISS,
+        CANCELLED,
+        REJECTED,
+        CIRCUIT_OPEN
+    }
+
+    private final Kind kind;
+
+    public ServiceException(Kind kind, String detailMessage) {
+        super(detailMessage);
+        this.kind = kind;
+    }
+
+    public ServiceException(Kind kind, Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.kind = kind;
+    }
+
+    public ServiceException(Kind kind, String detailMessage, Throwable cause) {
+        super(detailMessage, cause);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Transient failures that another attempt may not run into.
+     */
+    public boolean isRetryable() {
+        if (getCause() instanceof HttpClient.HttpStatusException) {
+            return ((HttpClient.HttpStatusException) getCause()).isRetryable();
+        }
+        return kind == Kind.NETWORK || kind == Kind.TIMEOUT;
+    }
+
+    public static ServiceException from(Exception exception) {
+        if (exception instanceof ServiceException) {
+            return (ServiceException) exception;
+        }
+        if (exception instanceof SocketTimeoutException) {
+            return new ServiceException(Kind.TIMEOUT, exception);
+        }
+        if (exception instanceof InterruptedException || exception instanceof InterruptedIOException
+                || exception instanceof CancellationException) {
+            return new ServiceException(Kind.CANCELLED, exception);
+        }
+        if (exception instanceof RejectedExecutionException) {
+            return new ServiceException(Kind.REJECTED, exception);
+        }
+        if (exception instanceof IOException) {
+            return new ServiceException(Kind.NETWORK, exception);
+        }
+        return new ServiceException(Kind.PARSE, exception);
+    }
+}
@@ -0,0 +1,49 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces identical requests: the first caller for a key becomes the leader and performs the
+ * work, later callers only register their listener until the leader completes the key.
+ */
+public class SingleFlight<K, L> {
+    private final Map<K, List<L>> inFlight = new HashMap<>();
+
+    /**
+     * @return true if the caller is the leader and has to start the request
+     */
+    public synchronized boolean join(K key, L listener) {
+        List<L> listeners = inFlight.get(key);
+
+        if (listeners != null) {
+            listeners.add(listener);
+            return false;
+        }
+
+        listeners = new ArrayList<>();
+        listeners.add(listener);
+        inFlight.put(key, listeners);
+
+        return true;
+    }
+
+    /**
+     * Ends the request for the key and returns every listener waiting on it.
+     */
+    public synchronized List<L> complete(K key) {
+        List<L> listeners = inFlight.remove(key);
+
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+
+        return listeners;
+    }
+
+    public synchronized boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+}
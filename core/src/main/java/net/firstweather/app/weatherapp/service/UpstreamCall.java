@@ -0,0 +1,178 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one upstream request under a {@link RequestPolicy}: failed attempts are retried with
+ * jittered exponential backoff, an attempt slower than the upstream's usual tail latency is
+ * hedged with a second identical request, and the whole call fails with a TIMEOUT once the
+ * deadline has passed so callers can fall back to cached data. With a {@link RateLimiter}, every
+ * attempt waits for a permit first and a hedge is only sent if a permit is free right away.
+ *
+ * Blocks the calling thread, which is expected to be a NETWORK task. Attempts run on the
+ * UPSTREAM pool; when it has no thread free the call fails at once with REJECTED.
+ */
+public class UpstreamCall<T> implements Callable<T> {
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    private static final Random jitter = new Random();
+
+    private final Callable<T> attempt;
+    private final RequestPolicy policy;
+    private final LatencyTracker latency;
+    private final RateLimiter rateLimiter;
+    private final String rateLimitKey;
+
+    public UpstreamCall(Callable<T> attempt, RequestPolicy policy, LatencyTracker latency) {
+        this(attempt, policy, latency, null, null);
+    }
+
+    /**
+     * @param rateLimiter  the upstream's limiter, may be null
+     * @param rateLimitKey API key the upstream counts the call against
+     */
+    public UpstreamCall(Callable<T> attempt, RequestPolicy policy, LatencyTracker latency, RateLimiter rateLimiter, String rateLimitKey) {
+        this.attempt = attempt;
+        this.policy = policy;
+        this.latency = latency;
+        this.rateLimiter = rateLimiter;
+        this.rateLimitKey = rateLimitKey;
+    }
+
+    @Override
+    public T call() throws Exception {
+        long deadline = System.currentTimeMillis() + policy.getDeadline();
+        ServiceException lastError = null;
+
+        for (int attemptNumber = 1; attemptNumber <= policy.getMaxAttempts(); attemptNumber++) {
+            try {
+                return callHedged(deadline);
+            } catch (ServiceException e) {
+                lastError = e;
+                if (!e.isRetryable()) {
+                    throw e;
+                }
+            }
+
+            if (attemptNumber == policy.getMaxAttempts()) {
+                break;
+            }
+
+            long backoff = getBackoff(attemptNumber);
+            if (System.currentTimeMillis() + backoff >= deadline) {
+                break;
+            }
+            Thread.sleep(backoff);
+        }
+
+        if (lastError != null && lastError.getKind() != ServiceException.Kind.TIMEOUT && System.currentTimeMillis() < deadline) {
+            throw lastError;
+        }
+        throw new ServiceException(ServiceException.Kind.TIMEOUT, "Upstream did not answer within " + policy.getDeadline() + " ms", lastError);
+    }
+
+    /**
+     * Half of the exponential delay is fixed and half is random, so clients that failed
+     * together do not retry together.
+     */
+    private long getBackoff(int attemptNumber) {
+        long exponential = Math.min(policy.getMaxBackoff(), policy.getInitialBackoff() << Math.min(attemptNumber - 1, 16));
+        long half = exponential / 2;
+
+        synchronized (jitter) {
+            return half + (long) (jitter.nextDouble() * (exponential - half));
+        }
+    }
+
+    private long getHedgeDelay() {
+        long delay = latency.getCount() < MIN_LATENCY_SAMPLES
+                ? policy.getDefaultHedgeDelay()
+                : latency.getPercentile(policy.getHedgePercentile());
+
+        return Math.max(policy.getMinHedgeDelay(), delay);
+    }
+
+    /**
+     * @return the first successful response of the primary and, if it is slow, the hedged request
+     */
+    private T callHedged(long deadline) throws Exception {
+        if (rateLimiter != null) {
+            // rejected right away if the permit would come too late, the caller falls back sooner
+            rateLimiter.acquire(rateLimitKey, policy.getPriority(), deadline - System.currentTimeMillis());
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(TaskScheduler.getInstance().getExecutor(Pool.UPSTREAM));
+        List<Future<T>> running = new ArrayList<>(2);
+
+        final long startedAt = System.currentTimeMillis();
+        try {
+            running.add(completion.submit(attempt));
+        } catch (RejectedExecutionException e) {
+            // not retried, every other call is waiting for a thread too
+            throw new ServiceException(ServiceException.Kind.REJECTED, "Too many upstream requests, try again later", e);
+        }
+        int pending = 1;
+        boolean hedged = !policy.isHedgingEnabled();
+        ServiceException error = null;
+
+        try {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new ServiceException(ServiceException.Kind.TIMEOUT, "Upstream did not answer within " + policy.getDeadline() + " ms");
+                }
+
+                long wait = hedged ? remaining : Math.min(remaining, startedAt + getHedgeDelay() - System.currentTimeMillis());
+                Future<T> done = completion.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+
+                if (done == null) {
+                    if (!hedged) {
+                        hedged = true;
+                        // primary is slower than usual, race it with a second request unless the quota is short
+                        if (rateLimiter == null || rateLimiter.tryAcquire(rateLimitKey, policy.getPriority())) {
+                            try {
+                                running.add(completion.submit(attempt));
+                                pending++;
+                            } catch (RejectedExecutionException e) {
+                                // every upstream thread is busy, the primary carries on alone
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                pending--;
+                try {
+                    T value = done.get();
+                    latency.record(System.currentTimeMillis() - startedAt);
+                    return value;
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    error = ServiceException.from(cause);
+                    if (!error.isRetryable()) {
+                        throw error;
+                    }
+                }
+            }
+
+            throw error;
+
+        } finally {
+            // the loser's read timeout bounds how long its connection lingers
+            for (Future<T> future : running) {
+                future.cancel(true);
+            }
+        }
+    }
+}
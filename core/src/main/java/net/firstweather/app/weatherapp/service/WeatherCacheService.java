@@ -0,0 +1,305 @@
+
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.BinaryChannelCodec;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.data.ChannelCodec;
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.listener.WeatherServiceListener;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+/**
+ * Two-tier weather cache keyed by the normalized location string: a bounded in-memory
+ * {@link ForecastStore} of parsed channels, backed by one file per location on disk. Services
+ * over the same directory share the memory tier by being handed the same store.
+ */
+public class WeatherCacheService {
+    public static final long DEFAULT_TIME_TO_LIVE = 30 * 60 * 1000;
+    private static final int MEMORY_CAPACITY = 16;
+    private static final int MEMORY_CONCURRENCY_LEVEL = 4; // segments of 4 entries
+    private static final int BUFFER_SIZE = 8192;
+    private static final String CACHE_DIRECTORY = "weather";
+    private static final String CACHE_FILE_EXTENSION = ".data";
+
+    private final File filesDirectory;
+    private final ChannelCodec codec;
+    private final ForecastStore memory;
+    private String missMessage = "No cached weather data";
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * @param filesDirectory directory the cache files are kept in a subdirectory of
+     */
+    public WeatherCacheService(File filesDirectory) {
+        this(filesDirectory, new BinaryChannelCodec());
+    }
+
+    /**
+     * @param codec on-disk format, e.g. {@link net.firstweather.app.weatherapp.data.JSONChannelCodec} for debugging
+     */
+    public WeatherCacheService(File filesDirectory, ChannelCodec codec) {
+        this(filesDirectory, codec, newMemory());
+    }
+
+    /**
+     * @param memory in-memory tier, only to be shared with services over the same directory and codec
+     */
+    public WeatherCacheService(File filesDirectory, ChannelCodec codec, ForecastStore memory) {
+        this.filesDirectory = filesDirectory;
+        this.codec = codec;
+        this.memory = memory;
+    }
+
+    /**
+     * @return an empty memory tier of the default size
+     */
+    public static ForecastStore newMemory() {
+        return new ForecastStore(MEMORY_CAPACITY, MEMORY_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Message of the CACHE_MISS failure, shown to the user when there is nothing to fall back to.
+     */
+    public void setMissMessage(String missMessage) {
+        this.missMessage = missMessage;
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Cancels pending loads; writes always run to completion.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    public static String normalize(String location) {
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the cached channel for the location if it has not outlived its TTL and is in the
+     * requested temperature unit, otherwise null. Reads the cache file when the location is not
+     * in memory, so it blocks: call it off the main thread, or use {@link #peekFresh} there.
+     */
+    public Channel getFresh(String location, String temperatureUnit) {
+        String key = normalize(location);
+
+        CacheEntry entry = memory.get(key);
+        if (entry == null) {
+            try {
+                entry = read(key);
+            } catch (IOException e) { // written by an older version or truncated
+                entry = null;
+            }
+        }
+
+        return fresh(entry, temperatureUnit);
+    }
+
+    /**
+     * Like {@link #getFresh} but only looks in memory, so it never blocks. A location that is
+     * only on disk, e.g. right after a cold start, is not found until {@link #load} read it.
+     */
+    public Channel peekFresh(String location, String temperatureUnit) {
+        return fresh(memory.get(normalize(location)), temperatureUnit);
+    }
+
+    private static Channel fresh(CacheEntry entry, String temperatureUnit) {
+        if (entry == null || !entry.isFresh(System.currentTimeMillis())) {
+            return null;
+        }
+
+        Channel channel = entry.getChannel();
+        if (temperatureUnit != null && !temperatureUnit.equalsIgnoreCase(channel.getUnits().getTemperature())) {
+            return null;
+        }
+
+        return channel;
+    }
+
+    public void markStale(String location) {
+        CacheEntry entry = memory.markStale(normalize(location));
+
+        if (entry != null) {
+            write(entry);
+        }
+    }
+
+    /**
+     * @return the pending disk write, or null if the channel was already cached
+     */
+    public Future<?> save(String location, Channel channel) {
+        String key = normalize(location);
+
+        CacheEntry current = memory.peek(key);
+        if (current != null && current.getChannel() == channel) {
+            // already cached, e.g. the listener is rendering what load() returned
+            return null;
+        }
+
+        CacheEntry entry = new CacheEntry(key, channel, System.currentTimeMillis(), timeToLive, false);
+        memory.put(entry);
+        return write(entry);
+    }
+
+    private Future<?> write(final CacheEntry entry) {
+        return new Task<Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                File directory = getCacheDirectory();
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Could not create " + directory);
+                }
+
+                // readers never see a half written file, and a failed write leaves the old one
+                File file = getCacheFile(entry.getLocation());
+                File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+
+                try {
+                    DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE));
+                    try {
+                        outputStream.writeLong(entry.getFetchedAt());
+                        outputStream.writeLong(entry.getTimeToLive());
+                        outputStream.writeBoolean(entry.isStale());
+                        codec.encode(entry.getChannel(), outputStream);
+                    } finally {
+                        outputStream.close();
+                    }
+
+                    // renameTo does not replace an existing file everywhere
+                    if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                        throw new IOException("Could not replace " + file);
+                    }
+                } finally {
+                    if (temporary.exists() && !temporary.delete()) {
+                        temporary.deleteOnExit();
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result, Exception error) {
+                if (error != null) {
+                    error.printStackTrace();
+                }
+            }
+        }.execute(Pool.DISK, CancellationToken.NONE);
+    }
+
+    /**
+     * Delivers the cached channel for the location, fresh or not, looking at memory first and disk second.
+     */
+    public void load(String location, final WeatherServiceListener listener) {
+        load(location, new ResultCallback<Channel>() {
+            @Override
+            public void onResult(Result<Channel> result) {
+                if (result.isSuccess()) {
+                    listener.serviceSuccess(result.getValue());
+                } else {
+                    listener.serviceFailure(result.getError());
+                }
+            }
+        });
+    }
+
+    public ResultFuture<Channel> load(final String location, ResultCallback<Channel> callback) {
+
+        return new RequestTask<Channel>(callback) {
+            @Override
+            protected Channel request() throws Exception {
+                String key = normalize(location);
+
+                CacheEntry entry = memory.get(key);
+                if (entry != null) {
+                    return entry.getChannel();
+                }
+
+                try {
+                    entry = read(key);
+                } catch (IOException e) { // written by an older version or truncated
+                    throw new ServiceException(ServiceException.Kind.CACHE_MISS, missMessage, e);
+                }
+
+                if (entry == null) { // cache file doesn't exist
+                    throw new ServiceException(ServiceException.Kind.CACHE_MISS, missMessage);
+                }
+
+                return entry.getChannel();
+            }
+        }.start(Pool.DISK, cancellationToken);
+    }
+
+    /**
+     * Reads the location's cache file into memory, unless a save got there first.
+     *
+     * @return the entry on disk, null if there is none
+     */
+    private CacheEntry read(String key) throws IOException {
+        DataInputStream inputStream;
+        try {
+            inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(getCacheFile(key)), BUFFER_SIZE));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        CacheEntry entry;
+        try {
+            long fetchedAt = inputStream.readLong();
+            long entryTimeToLive = inputStream.readLong();
+            boolean stale = inputStream.readBoolean();
+            Channel channel = codec.decode(inputStream);
+
+            entry = new CacheEntry(key, channel, fetchedAt, entryTimeToLive, stale);
+        } finally {
+            inputStream.close();
+        }
+
+        if (memory.peek(key) == null) {
+            memory.put(entry);
+        }
+
+        return entry;
+    }
+
+    public long getHitCount() {
+        return memory.getHitCount();
+    }
+
+    public long getMissCount() {
+        return memory.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return memory.getEvictionCount();
+    }
+
+    private File getCacheDirectory() {
+        return new File(filesDirectory, CACHE_DIRECTORY);
+    }
+
+    private File getCacheFile(String key) throws UnsupportedEncodingException {
+        return new File(getCacheDirectory(), URLEncoder.encode(key, "UTF-8") + CACHE_FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,20 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+
+/**
+ * A source of forecasts. Implementations block, and are only called from worker threads.
+ */
+public interface WeatherProvider {
+
+    /**
+     * Short stable name, used in logs and to key shared requests.
+     */
+    String getName();
+
+    /**
+     * @param temperatureUnit "c" or "f"
+     * @throws ServiceException with {@link ServiceException.Kind#NOT_FOUND} if the location is unknown
+     */
+    Channel fetch(String location, String temperatureUnit) throws Exception;
+}
@@ -0,0 +1,130 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.Task;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+/**
+ * Fetches forecasts from a {@link WeatherProvider}, sharing one upstream request between every
+ * caller asking for the same location at the same time.
+ */
+public class WeatherService {
+    // shared by every service, so screens and the feed asking for the same location share one request
+    private static final SingleFlight<String, Waiter> inFlight = new SingleFlight<>();
+    private static WeatherProvider defaultProvider;
+
+    private final WeatherProvider provider;
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+
+    public WeatherService() {
+        this(getDefaultProvider());
+    }
+
+    public WeatherService(WeatherProvider provider) {
+        this.provider = provider;
+    }
+
+    public static synchronized WeatherProvider getDefaultProvider() {
+        if (defaultProvider == null) {
+            defaultProvider = new YahooWeatherProvider();
+        }
+        return defaultProvider;
+    }
+
+    /**
+     * Provider used by services created without one, e.g. a {@link CompositeWeatherProvider}.
+     */
+    public static synchronized void setDefaultProvider(WeatherProvider provider) {
+        defaultProvider = provider;
+    }
+
+    /**
+     * Results are not delivered to this service's callbacks once the token is cancelled.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Refreshes a single location independently of any other request made through this service.
+     *
+     * @param callback called on the callback executor with this request's result, may be null
+     * @return future completed with this request's result
+     */
+    public ResultFuture<Channel> refreshWeather(final String location, String temperatureUnit, ResultCallback<Channel> callback) {
+        final String unit = "f".equalsIgnoreCase(temperatureUnit) ? "f" : "c";
+        final String key = provider.getName() + ":" + unit + ":" + WeatherCacheService.normalize(location);
+
+        Waiter waiter = new Waiter(callback, cancellationToken);
+
+        if (!inFlight.join(key, waiter)) {
+            // an identical request is already running, its result will be delivered to us too
+            return waiter.future;
+        }
+
+        final WeatherProvider provider = this.provider;
+
+        new Task<Void>() {
+            @Override
+            protected Void doInBackground() {
+                Result<Channel> result;
+                try {
+                    result = Result.success(provider.fetch(location, unit));
+                } catch (Exception e) {
+                    result = Result.failure(e);
+                }
+
+                for (Waiter waiter : inFlight.complete(key)) {
+                    waiter.deliver(result);
+                }
+
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void nothing, Exception error) {
+                if (error != null) {
+                    // never ran, e.g. the network queue was full
+                    Result<Channel> result = Result.failure(error);
+
+                    for (Waiter waiter : inFlight.complete(key)) {
+                        waiter.deliver(result);
+                    }
+                }
+            }
+
+        // the fetch is shared, so only the delivery to each waiter honours its token
+        }.execute(Pool.NETWORK, CancellationToken.NONE);
+
+        return waiter.future;
+    }
+
+    private static class Waiter {
+        final ResultCallback<Channel> callback;
+        final CancellationToken cancellationToken;
+        final ResultFuture<Channel> future = new ResultFuture<>();
+
+        Waiter(ResultCallback<Channel> callback, CancellationToken cancellationToken) {
+            this.callback = callback;
+            this.cancellationToken = cancellationToken;
+            cancellationToken.register(future);
+        }
+
+        void deliver(final Result<Channel> result) {
+            future.complete(result);
+            cancellationToken.unregister(future);
+
+            if (callback != null) {
+                TaskScheduler.getInstance().deliver(cancellationToken, new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResult(result);
+                    }
+                });
+            }
+        }
+    }
+}
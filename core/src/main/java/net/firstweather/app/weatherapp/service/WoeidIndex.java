@@ -0,0 +1,73 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent index of location text to Yahoo's Where On Earth ID, so a place name is resolved
+ * once and later forecasts are asked for by woeid directly.
+ *
+ * The index file is read on the DISK pool; until it has been, the first lookup waits for it, so
+ * only look up from worker threads.
+ */
+public class WoeidIndex {
+    private static final int CAPACITY = 256;
+    private static final int FORMAT_VERSION = 1;
+    private static final String INDEX_FILE = "woeid.data";
+
+    private static final Map<File, WoeidIndex> instances = new HashMap<>();
+
+    private static final PersistentMap.Format<String> FORMAT = new PersistentMap.Format<String>() {
+        @Override
+        public String read(DataInput data) throws IOException {
+            return data.readUTF();
+        }
+
+        @Override
+        public void write(DataOutput data, String woeid) throws IOException {
+            data.writeUTF(woeid);
+        }
+    };
+
+    private final PersistentMap<String> entries;
+
+    /**
+     * @return the index kept in the directory, one per directory
+     */
+    public static synchronized WoeidIndex getInstance(File directory) {
+        File file = new File(directory, INDEX_FILE).getAbsoluteFile();
+
+        WoeidIndex instance = instances.get(file);
+        if (instance == null) {
+            instance = new WoeidIndex(file);
+            instances.put(file, instance);
+        }
+        return instance;
+    }
+
+    WoeidIndex(File file) {
+        this.entries = new PersistentMap<>(file, CAPACITY, FORMAT_VERSION, FORMAT);
+    }
+
+    /**
+     * @return the woeid the location text resolved to, or null if it was never resolved
+     */
+    public String get(String location) {
+        return entries.get(WeatherCacheService.normalize(location));
+    }
+
+    public void put(String location, String woeid) {
+        entries.put(WeatherCacheService.normalize(location), woeid);
+    }
+
+    /**
+     * Forgets a woeid the upstream no longer knows, the text is resolved again next time.
+     */
+    public void remove(String location) {
+        entries.remove(WeatherCacheService.normalize(location));
+    }
+}
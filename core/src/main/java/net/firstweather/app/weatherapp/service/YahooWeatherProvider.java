@@ -0,0 +1,479 @@
+package net.firstweather.app.weatherapp.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.data.JSONStreams;
+import net.firstweather.app.weatherapp.listener.KeyedResultCallback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+public class YahooWeatherProvider implements BatchWeatherProvider {
+    public static final String DEFAULT_ENDPOINT = "https://query.yahooapis.com/v1/public/yql";
+    private static final int BATCH_SIZE = 10; // keeps the query URL well below common length limits
+    private static final LatencyTracker latency = new LatencyTracker();
+    private static final String PROJECTION = join(Channel.getProjection());
+    // the public endpoint allows 2000 queries an hour from one client
+    private static final RateLimiter defaultRateLimiter = new RateLimiter(2000 / 3600.0, 10);
+    // one per endpoint, shared by every provider sending its queries there
+    private static final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+
+    private final WoeidIndex woeidIndex;
+    private volatile RequestPolicy requestPolicy;
+    private volatile boolean fullResponse = false;
+    private volatile String yqlEndpoint = DEFAULT_ENDPOINT;
+    private volatile RateLimiter rateLimiter = defaultRateLimiter;
+    private volatile CircuitBreaker circuitBreaker = null;
+
+    public YahooWeatherProvider() {
+        this(null, new RequestPolicy());
+    }
+
+    /**
+     * @param woeidIndex where resolved place names are remembered, null to resolve on every request
+     */
+    public YahooWeatherProvider(WoeidIndex woeidIndex) {
+        this(woeidIndex, new RequestPolicy());
+    }
+
+    public YahooWeatherProvider(WoeidIndex woeidIndex, RequestPolicy requestPolicy) {
+        this.woeidIndex = woeidIndex;
+        this.requestPolicy = requestPolicy;
+    }
+
+    public void setRequestPolicy(RequestPolicy requestPolicy) {
+        this.requestPolicy = requestPolicy;
+    }
+
+    /**
+     * Asks for the whole upstream channel instead of only the members the model reads, e.g. to
+     * inspect responses while debugging.
+     */
+    public void setFullResponse(boolean fullResponse) {
+        this.fullResponse = fullResponse;
+    }
+
+    /**
+     * Replaces the limiter shared by every provider, null for none, e.g. for a stub upstream.
+     * Queries are counted per endpoint.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Replaces the breaker shared by every provider using the same endpoint, e.g. with one of
+     * the provider's own, null to share it again.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return getCircuitBreaker(yqlEndpoint);
+    }
+
+    private CircuitBreaker getCircuitBreaker(String yqlEndpoint) {
+        CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+
+        synchronized (circuitBreakers) {
+            circuitBreaker = circuitBreakers.get(yqlEndpoint);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker(yqlEndpoint.equals(DEFAULT_ENDPOINT) ? "Yahoo weather" : "Yahoo weather at " + yqlEndpoint);
+                circuitBreakers.put(yqlEndpoint, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    /**
+     * Sends the queries elsewhere, e.g. to a stub upstream under load test.
+     */
+    public void setEndpoint(String yqlEndpoint) {
+        this.yqlEndpoint = yqlEndpoint;
+    }
+
+    public String getEndpoint() {
+        return yqlEndpoint;
+    }
+
+    @Override
+    public String getName() {
+        return "yahoo";
+    }
+
+    @Override
+    public Channel fetch(String location, String temperatureUnit) throws Exception {
+        if (!isQueryable(location)) {
+            throw notQueryable(location);
+        }
+
+        String woeid = woeidIndex == null ? null : woeidIndex.get(location);
+
+        if (woeid != null) {
+            try {
+                return request(select() + "woeid=" + woeid + " and u='" + temperatureUnit + "'", location);
+            } catch (ServiceException e) {
+                if (e.getKind() != ServiceException.Kind.NOT_FOUND) {
+                    throw e;
+                }
+                // the place was renumbered, resolve the text again
+                woeidIndex.remove(location);
+            }
+        }
+
+        Channel channel = request(select() + "woeid in (" + resolve(location) + ") and u='" + temperatureUnit + "'", location);
+        remember(location, channel);
+
+        return channel;
+    }
+
+    private Channel request(String YQL, final String location) throws Exception {
+        final String yqlEndpoint = this.yqlEndpoint;
+        final String endpoint = String.format("%s?q=%s&format=json", yqlEndpoint, HttpClient.encode(YQL));
+        final RequestPolicy policy = requestPolicy;
+
+        return getCircuitBreaker(yqlEndpoint).call(new UpstreamCall<>(new Callable<Channel>() {
+            @Override
+            public Channel call() throws Exception {
+                HttpClient.Response response = HttpClient.getInstance().get(endpoint, policy.getConnectTimeout(), policy.getReadTimeout());
+
+                Channel channel;
+                try {
+                    channel = parseChannel(JSONStreams.newReader(response.getBody()));
+                } finally {
+                    response.close();
+                }
+
+                if (channel == null) {
+                    throw new ServiceException(ServiceException.Kind.NOT_FOUND, "No weather information found for " + location);
+                }
+
+                return channel;
+            }
+        }, policy, latency, rateLimiter, yqlEndpoint));
+    }
+
+    private String select() {
+        return "select " + (fullResponse ? "*" : PROJECTION) + " from weather.forecast where ";
+    }
+
+    private static String join(List<String> fields) {
+        StringBuilder joined = new StringBuilder();
+        for (String field : fields) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(field);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Only for a location {@link #isQueryable}.
+     */
+    private static String resolve(String location) {
+        return String.format("select woeid from geo.places(1) where text=\"%s\"", location);
+    }
+
+    /**
+     * @return whether the location can be asked for; a quote or backslash would end the YQL string
+     *         literal it is put in, or break the query, and no place is named with control characters
+     */
+    public static boolean isQueryable(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            char c = location.charAt(i);
+            if (c == '"' || c == '\\' || Character.isISOControl(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ServiceException notQueryable(String location) {
+        return new ServiceException(ServiceException.Kind.NOT_FOUND, "No place can be named " + location);
+    }
+
+    private void remember(String location, Channel channel) {
+        if (woeidIndex != null && channel.getWoeid() != null) {
+            woeidIndex.put(location, channel.getWoeid());
+        }
+    }
+
+    /**
+     * Asks for up to {@link #BATCH_SIZE} locations per query, one query after another.
+     */
+    @Override
+    public void fetchAll(Collection<String> locations, String temperatureUnit, KeyedResultCallback<Channel> sink) throws Exception {
+        for (List<String> batch : toBatches(new LinkedHashSet<>(locations))) {
+            fetchBatch(batch, temperatureUnit, sink);
+        }
+    }
+
+    /**
+     * Splits the locations into batches where no two name the same city, e.g. "Portland, OR" and
+     * "Portland, ME": the upstream only tells a resolved channel's city, which could not say
+     * which of the two it answers.
+     */
+    private static List<List<String>> toBatches(Collection<String> locations) {
+        List<List<String>> batches = new ArrayList<>();
+        List<Set<String>> cities = new ArrayList<>();
+
+        for (String location : locations) {
+            String city = getCity(location);
+
+            int index = 0;
+            while (index < batches.size() && (batches.get(index).size() == BATCH_SIZE || cities.get(index).contains(city))) {
+                index++;
+            }
+
+            if (index == batches.size()) {
+                batches.add(new ArrayList<String>(BATCH_SIZE));
+                cities.add(new HashSet<String>());
+            }
+            batches.get(index).add(location);
+            cities.get(index).add(city);
+        }
+
+        return batches;
+    }
+
+    private void fetchBatch(List<String> locations, String temperatureUnit, final KeyedResultCallback<Channel> sink) {
+        // locations with a known woeid are asked for directly, the rest are resolved by text
+        final Map<String, String> byWoeid = new LinkedHashMap<>();
+        final List<String> unresolved = new ArrayList<>();
+
+        for (String location : locations) {
+            String woeid = woeidIndex == null ? null : woeidIndex.get(location);
+            if (woeid != null && !byWoeid.containsKey(woeid)) {
+                byWoeid.put(woeid, location);
+            } else if (isQueryable(location)) {
+                unresolved.add(location);
+            } else {
+                // would break the query for every other location of the batch
+                sink.onResult(location, Result.<Channel>failure(notQueryable(location)));
+            }
+        }
+
+        if (byWoeid.isEmpty() && unresolved.isEmpty()) {
+            return;
+        }
+
+        StringBuilder YQL = new StringBuilder(select()).append("(");
+        if (!byWoeid.isEmpty()) {
+            YQL.append("woeid in (");
+            boolean first = true;
+            for (String woeid : byWoeid.keySet()) {
+                YQL.append(first ? "" : ",").append(woeid);
+                first = false;
+            }
+            YQL.append(")");
+        }
+        for (String location : unresolved) {
+            if (YQL.charAt(YQL.length() - 1) != '(') {
+                YQL.append(" or ");
+            }
+            YQL.append("woeid in (").append(resolve(location)).append(")");
+        }
+        YQL.append(") and u='").append(temperatureUnit).append("'");
+
+        final String yqlEndpoint = this.yqlEndpoint;
+        final String endpoint = String.format("%s?q=%s&format=json", yqlEndpoint, HttpClient.encode(YQL.toString()));
+        final RequestPolicy policy = requestPolicy;
+
+        // same order as the clauses of the query
+        final List<String> ordered = new ArrayList<>(byWoeid.values());
+        ordered.addAll(unresolved);
+
+        // a retry or hedge may parse the same channels again, each location is answered once
+        final Set<String> answered = Collections.synchronizedSet(new HashSet<String>());
+
+        Exception error = null;
+        try {
+            getCircuitBreaker(yqlEndpoint).call(new UpstreamCall<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    HttpClient.Response response = HttpClient.getInstance().get(endpoint, policy.getConnectTimeout(), policy.getReadTimeout());
+
+                    final List<Channel> unmatched = new ArrayList<>();
+                    try {
+                        parseChannels(JSONStreams.newReader(response.getBody()), new ChannelHandler() {
+                            @Override
+                            public void onChannel(Channel channel) {
+                                String location = byWoeid.get(channel.getWoeid());
+                                if (location == null) {
+                                    location = match(channel, unresolved, answered);
+                                }
+
+                                if (location == null) {
+                                    unmatched.add(channel);
+                                } else {
+                                    answer(location, channel, answered, sink);
+                                }
+                            }
+                        });
+                    } finally {
+                        response.close();
+                    }
+
+                    // a name the upstream spelled differently can only be told apart if it is the
+                    // last one left; with more, any pairing is a guess and they are not found
+                    List<String> remaining = new ArrayList<>(unresolved);
+                    remaining.removeAll(answered);
+                    if (unmatched.size() == 1 && remaining.size() == 1) {
+                        answer(remaining.get(0), unmatched.get(0), answered, sink);
+                    }
+
+                    return null;
+                }
+            }, policy, latency, rateLimiter, yqlEndpoint));
+
+        } catch (Exception e) {
+            error = e;
+        }
+
+        for (String location : ordered) {
+            // claimed like an answer, so an attempt still running cannot answer it afterwards
+            if (!answered.add(location)) {
+                continue;
+            }
+
+            if (error == null) {
+                if (byWoeid.containsValue(location)) {
+                    // the place was renumbered, resolve the text again next time
+                    woeidIndex.remove(location);
+                }
+                sink.onResult(location, Result.<Channel>failure(new ServiceException(ServiceException.Kind.NOT_FOUND, "No weather information found for " + location)));
+            } else {
+                sink.onResult(location, Result.<Channel>failure(error));
+            }
+        }
+    }
+
+    private void answer(String location, Channel channel, Set<String> answered, KeyedResultCallback<Channel> sink) {
+        if (answered.add(location)) {
+            remember(location, channel);
+            sink.onResult(location, Result.success(channel));
+        }
+    }
+
+    /**
+     * @return the one unanswered location naming the channel's city, or null if there is none
+     *         or more than one
+     */
+    private static String match(Channel channel, List<String> locations, Set<String> answered) {
+        if (channel.getLocation() == null || channel.getLocation().isEmpty()) {
+            return null;
+        }
+
+        String city = WeatherCacheService.normalize(channel.getLocation());
+        String matched = null;
+        for (String location : locations) {
+            if (!answered.contains(location) && getCity(location).equals(city)) {
+                if (matched != null) {
+                    return null;
+                }
+                matched = location;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return the normalized part of the location before any region or country, "portland" for
+     *         "Portland, OR"
+     */
+    private static String getCity(String location) {
+        int separator = location.indexOf(',');
+        return WeatherCacheService.normalize(separator < 0 ? location : location.substring(0, separator));
+    }
+
+    /**
+     * @return the channel or null if the query had no results
+     */
+    private static Channel parseChannel(JsonReader reader) throws IOException {
+        final Channel[] first = new Channel[1];
+
+        parseChannels(reader, new ChannelHandler() {
+            @Override
+            public void onChannel(Channel channel) {
+                if (first[0] == null) {
+                    first[0] = channel;
+                }
+            }
+        });
+
+        return first[0];
+    }
+
+    /**
+     * Pulls the channels out of {"query": {"count": n, "results": {"channel": {...} or [...]}}}
+     * without building the response tree, handing each over as soon as it is read; diagnostics
+     * and every other member are skipped.
+     */
+    private static void parseChannels(JsonReader reader, ChannelHandler handler) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("query")) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("results") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("channel")) {
+                        reader.skipValue();
+                    } else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        // more than one result
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            handler.onChannel(readChannel(reader));
+                        }
+                        reader.endArray();
+                    } else {
+                        handler.onChannel(readChannel(reader));
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    private static Channel readChannel(JsonReader reader) throws IOException {
+        Channel channel = new Channel();
+        channel.populate(reader);
+        return channel;
+    }
+
+    private interface ChannelHandler {
+        void onChannel(Channel channel);
+    }
+}
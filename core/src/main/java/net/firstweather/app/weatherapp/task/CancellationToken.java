@@ -0,0 +1,67 @@
+package net.firstweather.app.weatherapp.task;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Cancels every task started with it, typically created in an activity's onStart and cancelled
+ * in onStop so results are never delivered to a screen that is gone.
+ */
+public class CancellationToken {
+    /**
+     * Token for work that outlives any single screen, e.g. a fetch shared by several listeners.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private final Set<Future<?>> futures = new HashSet<>();
+    private volatile boolean cancelled = false;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        if (this == NONE) {
+            return;
+        }
+
+        Set<Future<?>> running;
+        synchronized (futures) {
+            cancelled = true;
+            running = new HashSet<>(futures);
+            futures.clear();
+        }
+
+        for (Future<?> future : running) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * The future is cancelled together with the token.
+     */
+    public void register(Future<?> future) {
+        if (this == NONE) {
+            return;
+        }
+
+        synchronized (futures) {
+            if (!cancelled) {
+                futures.add(future);
+                return;
+            }
+        }
+        future.cancel(true);
+    }
+
+    public void unregister(Future<?> future) {
+        if (this == NONE) {
+            return;
+        }
+
+        synchronized (futures) {
+            futures.remove(future);
+        }
+    }
+}
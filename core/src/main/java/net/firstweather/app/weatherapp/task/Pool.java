@@ -0,0 +1,16 @@
+package net.firstweather.app.weatherapp.task;
+
+/**
+ * Separate worker pools, so a slow network fetch never sits in front of a cache read.
+ */
+public enum Pool {
+    NETWORK,
+    DISK,
+    CPU,
+    /**
+     * Individual attempts of an upstream call, started by a NETWORK task that waits on them.
+     * Never queues, so a waiting task cannot deadlock on its own attempts, and rejects an attempt
+     * once every thread is busy rather than running it on the waiting task's thread.
+     */
+    UPSTREAM
+}
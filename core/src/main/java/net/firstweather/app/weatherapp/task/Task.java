@@ -0,0 +1,72 @@
+package net.firstweather.app.weatherapp.task;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Replacement for AsyncTask running on one of the {@link TaskScheduler} pools. The result is
+ * handed to the callback executor unless the task's {@link CancellationToken} was cancelled.
+ */
+public abstract class Task<Result> {
+
+    protected abstract Result doInBackground() throws Exception;
+
+    /**
+     * Called on the callback executor with either the result or the error doInBackground failed with.
+     */
+    protected abstract void onPostExecute(Result result, Exception error);
+
+    public final Future<?> execute(final Pool pool, final CancellationToken token) {
+        final TaskScheduler scheduler = TaskScheduler.getInstance();
+        final long queuedAt = System.nanoTime();
+
+        final FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                // not reached if the token was cancelled while queued
+                Result result = null;
+                Exception error = null;
+
+                try {
+                    result = doInBackground();
+                } catch (Exception e) {
+                    error = e;
+                }
+
+                deliver(scheduler, token, result, error);
+            }
+        }, null) {
+            @Override
+            public void run() {
+                scheduler.recordWait(pool, queuedAt);
+                super.run();
+            }
+
+            @Override
+            protected void done() {
+                token.unregister(this);
+            }
+        };
+
+        token.register(future);
+
+        try {
+            scheduler.getExecutor(pool).execute(future);
+        } catch (RejectedExecutionException e) {
+            token.unregister(future);
+            deliver(scheduler, token, null, e);
+        }
+
+        return future;
+    }
+
+    private void deliver(TaskScheduler scheduler, CancellationToken token, final Result result, final Exception error) {
+        scheduler.deliver(token, new Runnable() {
+            @Override
+            public void run() {
+                onPostExecute(result, error);
+            }
+        });
+    }
+}
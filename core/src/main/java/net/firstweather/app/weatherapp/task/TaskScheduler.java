@@ -0,0 +1,176 @@
+package net.firstweather.app.weatherapp.task;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded worker pools for network, disk and CPU work, with queue depth and wait time metrics.
+ *
+ * Results are handed to the callback executor, the main thread on Android. Without one set,
+ * callbacks run on the worker thread that finished the task.
+ */
+public class TaskScheduler {
+    private static final int NETWORK_THREADS = 4;
+    private static final int DISK_THREADS = 1; // keeps cache writes to the same file in order
+    private static final int CPU_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    // a primary and a hedge for each of the providers a network task asks at once
+    private static final int UPSTREAM_THREADS = 8 * NETWORK_THREADS;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static TaskScheduler instance;
+
+    private final Map<Pool, ThreadPoolExecutor> executors = new EnumMap<>(Pool.class);
+    private final Map<Pool, Stats> stats = new EnumMap<>(Pool.class);
+    private volatile Executor callbackExecutor;
+
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler(DIRECT);
+        }
+        return instance;
+    }
+
+    /**
+     * Set once at startup, before the first task completes.
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    TaskScheduler(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+
+        executors.put(Pool.NETWORK, newExecutor("network", NETWORK_THREADS));
+        executors.put(Pool.DISK, newExecutor("disk", DISK_THREADS));
+        executors.put(Pool.CPU, newExecutor("cpu", CPU_THREADS));
+        executors.put(Pool.UPSTREAM, newDirectExecutor("upstream", UPSTREAM_THREADS));
+
+        for (Pool pool : Pool.values()) {
+            stats.put(pool, new Stats());
+        }
+    }
+
+    /**
+     * Resizes a pool, e.g. the UPSTREAM pool of a server making far more concurrent upstream
+     * calls than the app.
+     */
+    public void setMaximumPoolSize(Pool pool, int threads) {
+        ThreadPoolExecutor executor = executors.get(pool);
+        // a queued pool only ever runs its core threads, the UPSTREAM pool has none
+        boolean queued = executor.getCorePoolSize() > 0;
+
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            if (queued) {
+                executor.setCorePoolSize(threads);
+            }
+        } else {
+            if (queued) {
+                executor.setCorePoolSize(threads);
+            }
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    public Executor getExecutor(Pool pool) {
+        return executors.get(pool);
+    }
+
+    /**
+     * Runs the callback on the callback executor unless the token has been cancelled by then.
+     */
+    public void deliver(final CancellationToken token, final Runnable callback) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!token.isCancelled()) {
+                    callback.run();
+                }
+            }
+        });
+    }
+
+    public int getQueueDepth(Pool pool) {
+        return executors.get(pool).getQueue().size();
+    }
+
+    public int getActiveCount(Pool pool) {
+        return executors.get(pool).getActiveCount();
+    }
+
+    public long getAverageWaitMillis(Pool pool) {
+        Stats poolStats = stats.get(pool);
+        long started = poolStats.started.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(poolStats.totalWait.get() / started);
+    }
+
+    public long getMaxWaitMillis(Pool pool) {
+        return TimeUnit.NANOSECONDS.toMillis(stats.get(pool).maxWait.get());
+    }
+
+    void recordWait(Pool pool, long queuedAt) {
+        long wait = System.nanoTime() - queuedAt;
+        Stats poolStats = stats.get(pool);
+
+        poolStats.started.incrementAndGet();
+        poolStats.totalWait.addAndGet(wait);
+
+        long max;
+        do {
+            max = poolStats.maxWait.get();
+        } while (wait > max && !poolStats.maxWait.compareAndSet(max, wait));
+    }
+
+    private static ThreadPoolExecutor newExecutor(String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), newThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Hands work straight to a thread, or rejects it once all are busy. Never runs it on the
+     * submitting thread, which would block the submitter past any deadline it is waiting with.
+     */
+    private static ThreadPoolExecutor newDirectExecutor(String name, int threads) {
+        BlockingQueue<Runnable> handOff = new SynchronousQueue<>();
+        return new ThreadPoolExecutor(0, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                handOff, newThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static class Stats {
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong totalWait = new AtomicLong();
+        final AtomicLong maxWait = new AtomicLong();
+    }
+}
@@ -0,0 +1,47 @@
+package net.firstweather.app.weatherapp.text;
+
+import net.firstweather.app.weatherapp.data.Dates;
+
+/**
+ * Formats epoch days as "02 Czerwiec 2017" into a caller supplied buffer, so a screen can
+ * reuse one StringBuilder and format without allocating.
+ */
+public class DateFormatter {
+    private final String[] months;
+
+    /**
+     * @param months names of the months, January first
+     */
+    public DateFormatter(String[] months) {
+        if (months.length != 12) {
+            throw new IllegalArgumentException("Expected 12 month names, got " + months.length);
+        }
+        this.months = months;
+    }
+
+    /**
+     * Appends the date to the buffer, nothing if the date is {@link Dates#UNKNOWN}.
+     *
+     * @return the buffer
+     */
+    public StringBuilder format(int epochDay, StringBuilder out) {
+        if (epochDay == Dates.UNKNOWN) {
+            return out;
+        }
+
+        int day = Dates.getDayOfMonth(epochDay);
+        out.append((char) ('0' + day / 10)).append((char) ('0' + day % 10));
+        out.append(' ').append(months[Dates.getMonth(epochDay) - 1]).append(' ');
+
+        int year = Dates.getYear(epochDay);
+        for (int divisor = 1000; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + year / divisor % 10));
+        }
+
+        return out;
+    }
+
+    public String getMonth(int month) {
+        return months[month - 1];
+    }
+}
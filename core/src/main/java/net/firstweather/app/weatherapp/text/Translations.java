@@ -0,0 +1,92 @@
+package net.firstweather.app.weatherapp.text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lookup tables for the texts shown next to a forecast: condition names indexed by the Yahoo
+ * condition code, day names indexed by day of the week and a hash table of city names.
+ */
+public class Translations {
+    public static final int CODE_NOT_AVAILABLE = 3200;
+
+    private static final String[] DAY_ABBREVIATIONS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final Map<String, Integer> DAY_INDEX = new HashMap<>();
+
+    static {
+        for (int day = 0; day < DAY_ABBREVIATIONS.length; day++) {
+            DAY_INDEX.put(DAY_ABBREVIATIONS[day], day);
+        }
+    }
+
+    private final String[] conditions;
+    private final String notAvailable;
+    private final String[] days;
+    private final Map<String, String> cities;
+    private final DateFormatter dateFormatter;
+
+    /**
+     * @param conditions names of the condition codes 0 to 47
+     * @param days       names of the days of the week, Monday first
+     * @param cityKeys   city names as the upstream spells them
+     * @param cityNames  translations of cityKeys, at the same index
+     * @param months     names of the months, January first
+     */
+    public Translations(String[] conditions, String notAvailable, String[] days, String[] cityKeys, String[] cityNames, String[] months) {
+        if (days.length != DAY_ABBREVIATIONS.length || cityKeys.length != cityNames.length) {
+            throw new IllegalArgumentException("Incomplete translation tables");
+        }
+
+        this.conditions = conditions;
+        this.notAvailable = notAvailable;
+        this.days = days;
+        this.cities = new HashMap<>(cityKeys.length * 2);
+        this.dateFormatter = new DateFormatter(months);
+
+        for (int i = 0; i < cityKeys.length; i++) {
+            cities.put(cityKeys[i], cityNames[i]);
+        }
+    }
+
+    /**
+     * @param fallback shown for codes without a translation, usually the upstream description
+     */
+    public String condition(int code, String fallback) {
+        if (code >= 0 && code < conditions.length) {
+            return conditions[code];
+        }
+        return code == CODE_NOT_AVAILABLE ? notAvailable : fallback;
+    }
+
+    /**
+     * @param day 0 for Monday to 6 for Sunday
+     */
+    public String dayOfWeek(int day) {
+        return days[day];
+    }
+
+    /**
+     * @param abbreviation the upstream's English day, e.g. "Mon"; returned as is if unknown
+     */
+    public String dayOfWeek(String abbreviation) {
+        int day = dayIndex(abbreviation);
+        return day < 0 ? abbreviation : days[day];
+    }
+
+    /**
+     * @return 0 for "Mon" to 6 for "Sun", or -1
+     */
+    public static int dayIndex(String abbreviation) {
+        Integer day = abbreviation == null ? null : DAY_INDEX.get(abbreviation);
+        return day == null ? -1 : day;
+    }
+
+    public DateFormatter getDateFormatter() {
+        return dateFormatter;
+    }
+
+    public String city(String name) {
+        String translated = name == null ? null : cities.get(name);
+        return translated == null ? name : translated;
+    }
+}
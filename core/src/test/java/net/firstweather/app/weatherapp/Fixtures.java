@@ -0,0 +1,124 @@
+package net.firstweather.app.weatherapp;
+
+import net.firstweather.app.weatherapp.data.BinaryChannelCodec;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.service.WeatherCacheService;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+
+/**
+ * The recorded Yahoo responses shared with the benchmarks.
+ *
+ * projected: the fields the app selects, one channel
+ * batch:     ten projected channels from one batched query
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    public static String load(String name) throws IOException {
+        InputStream input = Fixtures.class.getResourceAsStream("/payloads/" + name + ".json");
+        if (input == null) {
+            throw new IOException("No payload " + name);
+        }
+
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * The channel of the projected response.
+     */
+    public static Channel channel() throws IOException, JSONException {
+        return populate(projected());
+    }
+
+    /**
+     * The projected channel, moved to the city and with its current temperature changed.
+     */
+    public static Channel channel(String city, int temperature) throws IOException, JSONException {
+        JSONObject data = projected();
+        data.getJSONObject("location").put("city", city);
+        data.getJSONObject("item").getJSONObject("condition").put("temp", String.valueOf(temperature));
+        return populate(data);
+    }
+
+    /**
+     * A projected Yahoo response for the city, with its current temperature changed.
+     */
+    public static String response(String city, int temperature) throws IOException, JSONException {
+        JSONObject response = new JSONObject(load("projected"));
+        JSONObject channel = response.getJSONObject("query").getJSONObject("results").getJSONObject("channel");
+        channel.getJSONObject("location").put("city", city);
+        channel.getJSONObject("item").getJSONObject("condition").put("temp", String.valueOf(temperature));
+        return response.toString();
+    }
+
+    /**
+     * Writes a cache file the way WeatherCacheService does, without putting it in the memory
+     * tier, like a previous run of the app would have left it.
+     */
+    public static void writeCacheFile(File filesDirectory, String location, Channel channel, long fetchedAt) throws IOException {
+        File file = new File(new File(filesDirectory, "weather"),
+                URLEncoder.encode(WeatherCacheService.normalize(location), "UTF-8") + ".data");
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + file.getParentFile());
+        }
+
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        try {
+            output.writeLong(fetchedAt);
+            output.writeLong(WeatherCacheService.DEFAULT_TIME_TO_LIVE);
+            output.writeBoolean(false);
+            new BinaryChannelCodec().encode(channel, output);
+        } finally {
+            output.close();
+        }
+    }
+
+    public static File createDirectory() throws IOException {
+        File directory = File.createTempFile("weather", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create " + directory);
+        }
+        return directory;
+    }
+
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static JSONObject projected() throws IOException, JSONException {
+        return new JSONObject(load("projected")).getJSONObject("query").getJSONObject("results").getJSONObject("channel");
+    }
+
+    private static Channel populate(JSONObject data) {
+        Channel channel = new Channel();
+        channel.populate(data);
+        return channel;
+    }
+}
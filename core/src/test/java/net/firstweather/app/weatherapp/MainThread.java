@@ -0,0 +1,47 @@
+package net.firstweather.app.weatherapp;
+
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A single thread standing in for the app's main thread: the callback executor of the
+ * {@link TaskScheduler}, and where tests call what the app only calls from the main thread.
+ */
+public final class MainThread {
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "main-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private MainThread() {
+    }
+
+    public static void install() {
+        TaskScheduler.getInstance().setCallbackExecutor(executor);
+    }
+
+    /**
+     * Runs the call on the main thread and waits for it.
+     */
+    public static <T> T call(Callable<T> call) throws Exception {
+        return executor.submit(call).get();
+    }
+
+    public static void run(final Runnable runnable) throws Exception {
+        call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                runnable.run();
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package net.firstweather.app.weatherapp.data;
+
+import net.firstweather.app.weatherapp.Fixtures;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BinaryChannelCodecTest {
+    private final BinaryChannelCodec codec = new BinaryChannelCodec();
+    private Channel channel;
+    private byte[] record;
+
+    @Before
+    public void setUp() throws Exception {
+        channel = Fixtures.channel();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.encode(channel, output);
+        record = output.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Channel decoded = codec.decode(new ByteArrayInputStream(record));
+
+        assertEquals(channel.toJSON().toString(), decoded.toJSON().toString());
+    }
+
+    @Test
+    public void rejectsNegativeLength() {
+        assertCorrupted(withLength(-1));
+    }
+
+    @Test
+    public void rejectsHugeLength() {
+        // would have allocated 2 GB before reading a byte of it
+        assertCorrupted(withLength(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void rejectsTruncatedRecord() {
+        byte[] truncated = Arrays.copyOf(record, record.length - 10);
+
+        try {
+            codec.decode(new ByteArrayInputStream(truncated));
+            fail("Decoded a truncated record");
+        } catch (EOFException expected) {
+        } catch (IOException e) {
+            fail("Expected EOFException, got " + e);
+        }
+    }
+
+    @Test
+    public void rejectsLengthBeyondRecord() {
+        // in range, but the record ends long before
+        try {
+            codec.decode(new ByteArrayInputStream(withLength(BinaryChannelCodec.MAX_PAYLOAD_LENGTH)));
+            fail("Decoded past the end of the record");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsHugeForecast() throws IOException {
+        Item item = new Item();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(output);
+        new Condition().write(data);
+        data.writeInt(Integer.MAX_VALUE);
+
+        try {
+            item.populate(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+            fail("Populated a forecast of " + Integer.MAX_VALUE + " days");
+        } catch (IOException expected) {
+        }
+    }
+
+    private byte[] withLength(int length) {
+        byte[] corrupted = record.clone();
+        // after the magic and the format version
+        corrupted[6] = (byte) (length >>> 24);
+        corrupted[7] = (byte) (length >>> 16);
+        corrupted[8] = (byte) (length >>> 8);
+        corrupted[9] = (byte) length;
+        return corrupted;
+    }
+
+    private void assertCorrupted(byte[] corrupted) {
+        try {
+            codec.decode(new ByteArrayInputStream(corrupted));
+            fail("Decoded a corrupted record");
+        } catch (IOException expected) {
+        }
+    }
+}
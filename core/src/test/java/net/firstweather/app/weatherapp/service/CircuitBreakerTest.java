@@ -0,0 +1,210 @@
+package net.firstweather.app.weatherapp.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Five calls in the window, half of them failed, open the breaker for 30 seconds of the fake clock.
+ */
+public class CircuitBreakerTest {
+    private final FakeClock clock = new FakeClock();
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker("stub", clock);
+        breaker.setMinimumCalls(5);
+        breaker.setFailureRateThreshold(0.5);
+        breaker.setOpenDuration(30000);
+    }
+
+    @Test
+    public void opensOnceEnoughCallsFailed() throws Exception {
+        succeed();
+        succeed();
+        failWith(ServiceException.Kind.NETWORK);
+        failWith(ServiceException.Kind.TIMEOUT);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // the fifth call makes the window count, three of five failed
+        failWith(ServiceException.Kind.NETWORK);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void staysClosedBelowThreshold() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            succeed();
+        }
+        for (int i = 0; i < 5; i++) {
+            failWith(ServiceException.Kind.NETWORK);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failWith(ServiceException.Kind.NETWORK);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void ignoresFailuresRetryingWouldNotFix() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            failWith(ServiceException.Kind.NOT_FOUND);
+            failWith(ServiceException.Kind.CANCELLED);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void forgetsFailuresOlderThanWindow() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            failWith(ServiceException.Kind.NETWORK);
+        }
+
+        clock.advance(61, TimeUnit.SECONDS);
+        failWith(ServiceException.Kind.NETWORK);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void rejectsWithoutCallingWhileOpen() throws Exception {
+        open();
+
+        clock.advance(29, TimeUnit.SECONDS);
+        try {
+            breaker.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    throw new AssertionError("Called the upstream through an open breaker");
+                }
+            });
+            fail("Let a call through an open breaker");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.CIRCUIT_OPEN, e.getKind());
+        }
+
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void letsOneProbeThroughAfterOpenDuration() throws Exception {
+        open();
+        clock.advance(30, TimeUnit.SECONDS);
+
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // a second call while the probe is out is turned away
+        try {
+            breaker.acquirePermission();
+            fail("Let a second probe through");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.CIRCUIT_OPEN, e.getKind());
+        }
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.HALF_OPEN));
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+        assertEquals(1, breaker.getRejectedCount());
+
+        // closed with an empty window, four failures are not enough
+        for (int i = 0; i < 4; i++) {
+            failWith(ServiceException.Kind.NETWORK);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void failedProbeOpensAgain() throws Exception {
+        open();
+        clock.advance(30, TimeUnit.SECONDS);
+
+        failWith(ServiceException.Kind.TIMEOUT);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+
+        // for another whole open duration
+        clock.advance(29, TimeUnit.SECONDS);
+        try {
+            breaker.acquirePermission();
+            fail("Let a call through an open breaker");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.CIRCUIT_OPEN, e.getKind());
+        }
+    }
+
+    @Test
+    public void probeFailingForOtherReasonLetsNextCallProbe() throws Exception {
+        open();
+        clock.advance(30, TimeUnit.SECONDS);
+
+        failWith(ServiceException.Kind.NOT_FOUND);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void probeEndingInErrorLetsNextCallProbe() throws Exception {
+        open();
+        clock.advance(30, TimeUnit.SECONDS);
+
+        try {
+            breaker.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    throw new StackOverflowError();
+                }
+            });
+            fail("Swallowed the error");
+        } catch (StackOverflowError expected) {
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void open() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            failWith(ServiceException.Kind.NETWORK);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed() throws Exception {
+        breaker.call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+
+    private void failWith(final ServiceException.Kind kind) throws Exception {
+        try {
+            breaker.call(new Callable<Void>() {
+                @Override
+                public Void call() throws ServiceException {
+                    throw new ServiceException(kind, "Failed with " + kind);
+                }
+            });
+            fail("Swallowed the failure");
+        } catch (ServiceException e) {
+            assertEquals(kind, e.getKind());
+        }
+    }
+}
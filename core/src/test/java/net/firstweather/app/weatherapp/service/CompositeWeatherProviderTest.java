@@ -0,0 +1,178 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.data.Channel;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Stub providers answer with their own current temperature, so the answer tells which of them
+ * it came from.
+ */
+public class CompositeWeatherProviderTest {
+
+    @Test
+    public void asksEveryProviderAndCancelsTheSlowOnes() throws Exception {
+        StubProvider fast = new StubProvider("fast", 10, 0);
+        StubProvider slow = new StubProvider("slow", 20, 5000);
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(slow, fast));
+
+        long startedAt = System.nanoTime();
+        Channel channel = composite.fetch("Warsaw", "c");
+
+        assertEquals(10, getTemperature(channel));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 2000);
+        assertEquals(1, fast.calls.get());
+        assertEquals(1, slow.calls.get());
+        assertTrue("slow provider was not cancelled", slow.interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void mergesQuorumIntoMedian() throws Exception {
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(
+                new StubProvider("low", -40, 0),
+                new StubProvider("high", 60, 30),
+                new StubProvider("middle", 21, 60)), 3);
+
+        // the median ignores the providers far off in either direction
+        assertEquals(21, getTemperature(composite.fetch("Warsaw", "c")));
+    }
+
+    @Test
+    public void mergesFirstAnswersOfQuorum() throws Exception {
+        StubProvider late = new StubProvider("late", 99, 5000);
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(
+                new StubProvider("first", 10, 0),
+                new StubProvider("second", 14, 30),
+                late), 2);
+
+        // of two answers the lower one is the median
+        assertEquals(10, getTemperature(composite.fetch("Warsaw", "c")));
+        assertTrue("late provider was not cancelled", late.interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failsOverToNextProvider() throws Exception {
+        StubProvider failing = new StubProvider("failing", 10, 0);
+        failing.failure = new ServiceException(ServiceException.Kind.NETWORK, "Connection reset");
+        StubProvider backup = new StubProvider("backup", 12, 0);
+
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(failing, backup));
+        composite.setFanOut(1);
+
+        assertEquals(12, getTemperature(composite.fetch("Warsaw", "c")));
+        assertEquals(1, failing.calls.get());
+        assertEquals(1, backup.calls.get());
+
+        // the failure counts against the provider, the backup is asked first from now on
+        assertSame(backup, composite.getRanking().get(0));
+        assertEquals(12, getTemperature(composite.fetch("Warsaw", "c")));
+        assertEquals(1, failing.calls.get());
+    }
+
+    @Test
+    public void failsWithFirstErrorWhenEveryProviderFails() throws Exception {
+        StubProvider first = new StubProvider("first", 10, 0);
+        first.failure = new ServiceException(ServiceException.Kind.TIMEOUT, "first timed out");
+        StubProvider second = new StubProvider("second", 12, 50);
+        second.failure = new ServiceException(ServiceException.Kind.NETWORK, "second is down");
+
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(first, second));
+
+        try {
+            composite.fetch("Warsaw", "c");
+            fail("Answered without any provider answering");
+        } catch (ServiceException e) {
+            assertSame(first.failure, e);
+        }
+        assertEquals(1, first.calls.get());
+        assertEquals(1, second.calls.get());
+    }
+
+    @Test
+    public void givesUpOnHangingProvidersAtDeadline() throws Exception {
+        StubProvider hanging = new StubProvider("hanging", 10, 60000);
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(hanging));
+        composite.setDeadline(100);
+
+        long startedAt = System.nanoTime();
+        try {
+            composite.fetch("Warsaw", "c");
+            fail("Answered without any provider answering");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.TIMEOUT, e.getKind());
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 2000);
+        assertTrue("hanging provider was not cancelled", hanging.interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void notFoundDoesNotCountAgainstProvider() throws Exception {
+        StubProvider unknown = new StubProvider("unknown", 10, 0);
+        unknown.failure = new ServiceException(ServiceException.Kind.NOT_FOUND, "No such place");
+        StubProvider other = new StubProvider("other", 12, 0);
+
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(unknown, other));
+        composite.setFanOut(1);
+
+        assertEquals(12, getTemperature(composite.fetch("Atlantis", "c")));
+        assertSame(unknown, composite.getRanking().get(0));
+    }
+
+    private static int getTemperature(Channel channel) {
+        return channel.getItem().getCondition().getTemperature();
+    }
+
+    private static class StubProvider implements WeatherProvider {
+        final String name;
+        final int temperature;
+        final long delay;
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        volatile ServiceException failure = null;
+
+        /**
+         * @param delay milliseconds before it answers
+         */
+        StubProvider(String name, int temperature, long delay) {
+            this.name = name;
+            this.temperature = temperature;
+            this.delay = delay;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Channel fetch(String location, String temperatureUnit) throws Exception {
+            calls.incrementAndGet();
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new ServiceException(ServiceException.Kind.CANCELLED, e);
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return Fixtures.channel(name, temperature);
+        }
+    }
+}
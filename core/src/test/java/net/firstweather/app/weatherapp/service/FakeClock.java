@@ -0,0 +1,26 @@
+package net.firstweather.app.weatherapp.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only moves when the test advances it. Threads waiting on it check back every
+ * millisecond of real time, so an advance is never missed.
+ */
+final class FakeClock implements Clock {
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    @Override
+    public long nanoTime() {
+        return now.get();
+    }
+
+    @Override
+    public void waitOn(Object monitor, long nanos) throws InterruptedException {
+        monitor.wait(1);
+    }
+
+    void advance(long duration, TimeUnit unit) {
+        now.addAndGet(unit.toNanos(duration));
+    }
+}
@@ -0,0 +1,274 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.MainThread;
+import net.firstweather.app.weatherapp.data.Channel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ForecastControllerTest {
+    // how long the stand-in upstream takes to answer
+    private static final long UPSTREAM_DELAY = 1500;
+    // what the first render of a location with a cache file may take
+    private static final long FIRST_RENDER_BUDGET = 300;
+
+    private File directory;
+    private SlowProvider provider;
+    private RecordingScreen screen;
+    private ForecastController controller;
+
+    @BeforeClass
+    public static void setUpClass() {
+        MainThread.install();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Fixtures.createDirectory();
+        provider = new SlowProvider(UPSTREAM_DELAY);
+        screen = new RecordingScreen();
+
+        WeatherCacheService cacheService = new WeatherCacheService(directory);
+        controller = new ForecastController(new ForecastFeed(new WeatherService(provider), cacheService), cacheService, screen);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                controller.stop();
+            }
+        });
+        Fixtures.delete(directory);
+    }
+
+    @Test
+    public void rendersStaleCacheBeforeSlowUpstream() throws Exception {
+        String location = "Warsaw";
+        Channel cached = Fixtures.channel(location, 10);
+        Channel refreshed = Fixtures.channel(location, 20);
+        Fixtures.writeCacheFile(directory, location, cached, System.currentTimeMillis() - 2 * WeatherCacheService.DEFAULT_TIME_TO_LIVE);
+        provider.answer(location, refreshed);
+
+        long startedAt = System.nanoTime();
+        show(location);
+
+        Channel first = screen.nextChannel(UPSTREAM_DELAY);
+        long firstRender = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertEquals(cached, first);
+        assertTrue("First render took " + firstRender + " ms", firstRender < FIRST_RENDER_BUDGET);
+
+        assertEquals(refreshed, screen.nextChannel(2 * UPSTREAM_DELAY));
+        assertEquals(Boolean.FALSE, screen.opened.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, provider.fetches.get());
+    }
+
+    @Test
+    public void freshCacheOnDiskSkipsUpstream() throws Exception {
+        String location = "Krakow";
+        Channel cached = Fixtures.channel(location, 10);
+        Fixtures.writeCacheFile(directory, location, cached, System.currentTimeMillis());
+
+        show(location);
+
+        assertEquals(cached, screen.nextChannel(FIRST_RENDER_BUDGET));
+        assertEquals(Boolean.TRUE, screen.opened.poll(0, TimeUnit.MILLISECONDS));
+        assertNull(screen.channels.poll(UPSTREAM_DELAY / 2, TimeUnit.MILLISECONDS));
+        assertEquals(0, provider.fetches.get());
+    }
+
+    @Test
+    public void waitsForUpstreamWithNothingCached() throws Exception {
+        String location = "Gdansk";
+        Channel refreshed = Fixtures.channel(location, 20);
+        provider.answer(location, refreshed);
+
+        show(location);
+
+        assertTrue(screen.loading.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+        assertEquals(refreshed, screen.nextChannel(2 * UPSTREAM_DELAY));
+        assertEquals(Boolean.FALSE, screen.loading.poll(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void newLocationClearsDisplayedChannel() throws Exception {
+        String here = "Poznan";
+        String there = "Lodz";
+        // the same forecast, so only the location change can make the screen redraw
+        Channel channel = Fixtures.channel("Warsaw", 10);
+        Fixtures.writeCacheFile(directory, here, channel, System.currentTimeMillis());
+        provider.answer(there, Fixtures.channel("Warsaw", 10));
+
+        show(here);
+        assertEquals(channel, screen.nextChannel(FIRST_RENDER_BUDGET));
+
+        show(there);
+        assertNull(MainThread.call(new Callable<Channel>() {
+            @Override
+            public Channel call() {
+                return controller.getDisplayedChannel();
+            }
+        }));
+
+        Channel shown = screen.nextChannel(2 * UPSTREAM_DELAY);
+        assertNotNull(shown);
+        assertSame(shown, MainThread.call(new Callable<Channel>() {
+            @Override
+            public Channel call() {
+                return controller.getDisplayedChannel();
+            }
+        }));
+    }
+
+    @Test
+    public void rejectedRefreshDoesNotFallBackToCache() throws Exception {
+        String location = "Wroclaw";
+        provider.fail(location, new ServiceException(ServiceException.Kind.REJECTED, "Too many requests"));
+
+        show(location);
+
+        assertEquals(Boolean.TRUE, screen.nothingToShow.poll(2 * UPSTREAM_DELAY, TimeUnit.MILLISECONDS));
+        assertNull(screen.nothingToShow.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+        assertEquals(1, provider.fetches.get());
+    }
+
+    @Test
+    public void timedOutRefreshFallsBackToCacheOnce() throws Exception {
+        String location = "Lublin";
+        Channel cached = Fixtures.channel(location, 10);
+        provider.fail(location, new ServiceException(ServiceException.Kind.TIMEOUT, "Timed out"));
+
+        show(location);
+        assertTrue(screen.loading.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+
+        // e.g. another screen saved it while the upstream was timing out
+        Fixtures.writeCacheFile(directory, location, cached, System.currentTimeMillis() - 2 * WeatherCacheService.DEFAULT_TIME_TO_LIVE);
+
+        assertEquals(Boolean.FALSE, screen.nothingToShow.poll(2 * UPSTREAM_DELAY, TimeUnit.MILLISECONDS));
+        assertEquals(cached, screen.nextChannel(FIRST_RENDER_BUDGET));
+        assertNull(screen.nothingToShow.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+        assertEquals(1, provider.fetches.get());
+    }
+
+    @Test
+    public void timedOutRefreshWithNothingCachedShowsError() throws Exception {
+        String location = "Szczecin";
+        provider.fail(location, new ServiceException(ServiceException.Kind.TIMEOUT, "Timed out"));
+
+        show(location);
+
+        assertEquals(Boolean.FALSE, screen.nothingToShow.poll(2 * UPSTREAM_DELAY, TimeUnit.MILLISECONDS));
+        assertEquals(Boolean.TRUE, screen.nothingToShow.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+        assertNull(screen.nothingToShow.poll(FIRST_RENDER_BUDGET, TimeUnit.MILLISECONDS));
+    }
+
+    private void show(final String location) throws Exception {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                controller.show(location, "c");
+            }
+        });
+    }
+
+    private static class SlowProvider implements WeatherProvider {
+        final AtomicInteger fetches = new AtomicInteger();
+        private final long delay;
+        private final Map<String, Channel> answers = new ConcurrentHashMap<>();
+        private final Map<String, ServiceException> failures = new ConcurrentHashMap<>();
+
+        SlowProvider(long delay) {
+            this.delay = delay;
+        }
+
+        void answer(String location, Channel channel) {
+            answers.put(location, channel);
+        }
+
+        void fail(String location, ServiceException failure) {
+            failures.put(location, failure);
+        }
+
+        @Override
+        public String getName() {
+            return "slow";
+        }
+
+        @Override
+        public Channel fetch(String location, String temperatureUnit) throws Exception {
+            fetches.incrementAndGet();
+            Thread.sleep(delay);
+
+            if (failures.containsKey(location)) {
+                throw failures.get(location);
+            }
+            Channel channel = answers.get(location);
+            if (channel == null) {
+                throw new ServiceException(ServiceException.Kind.NOT_FOUND, "No weather for " + location);
+            }
+            return channel;
+        }
+    }
+
+    private static class RecordingScreen implements ForecastController.Screen {
+        final BlockingQueue<Channel> channels = new LinkedBlockingQueue<>();
+        // true for every showLoading, false for every hideLoading
+        final BlockingQueue<Boolean> loading = new LinkedBlockingQueue<>();
+        final BlockingQueue<Boolean> opened = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> errors = new LinkedBlockingQueue<>();
+        // nothingToShow of every error
+        final BlockingQueue<Boolean> nothingToShow = new LinkedBlockingQueue<>();
+
+        Channel nextChannel(long timeout) throws InterruptedException {
+            Channel channel = channels.poll(timeout, TimeUnit.MILLISECONDS);
+            assertNotNull("Nothing rendered in " + timeout + " ms", channel);
+            return channel;
+        }
+
+        @Override
+        public void showChannel(Channel channel) {
+            channels.add(channel);
+        }
+
+        @Override
+        public void showLoading() {
+            loading.add(true);
+        }
+
+        @Override
+        public void hideLoading() {
+            loading.add(false);
+        }
+
+        @Override
+        public void showError(String message, boolean nothingToShow) {
+            errors.add(message);
+            this.nothingToShow.add(nothingToShow);
+        }
+
+        @Override
+        public void onOpened(boolean fresh) {
+            opened.add(fresh);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.MainThread;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.Flow;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deliveries go through the main thread stand-in; running a no-op there waits for every
+ * delivery queued before it.
+ */
+public class ForecastFeedTest {
+    private static final String LOCATION = "Warsaw";
+
+    private GatedProvider provider;
+    private ForecastFeed feed;
+
+    @BeforeClass
+    public static void setUpClass() {
+        MainThread.install();
+    }
+
+    @Before
+    public void setUp() {
+        provider = new GatedProvider();
+        feed = new ForecastFeed(new WeatherService(provider), null);
+    }
+
+    @Test
+    public void conflatesResultsWhileSubscriberHasNoDemand() throws Exception {
+        RecordingSubscriber subscriber = subscribe(0);
+
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 2));
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 3));
+        awaitDeliveries();
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.request(10);
+        awaitDeliveries();
+
+        assertEquals(1, subscriber.received.size());
+        assertEquals(3, getTemperature(subscriber.received.get(0)));
+    }
+
+    @Test
+    public void failureDoesNotReplaceUndeliveredChannel() throws Exception {
+        RecordingSubscriber subscriber = subscribe(0);
+
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        provider.fail = true;
+        provider.release.countDown();
+        feed.refresh(LOCATION, "c");
+        awaitRefresh();
+
+        subscriber.request(10);
+        awaitDeliveries();
+
+        assertEquals(1, subscriber.received.size());
+        assertTrue(subscriber.received.get(0).isSuccess());
+    }
+
+    @Test
+    public void doesNotDeliverEqualChannelAgain() throws Exception {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        awaitDeliveries();
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        awaitDeliveries();
+
+        assertEquals(1, subscriber.received.size());
+    }
+
+    @Test
+    public void newSubscriberGetsLatestChannel() throws Exception {
+        subscribe(Long.MAX_VALUE);
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 2));
+
+        RecordingSubscriber late = subscribe(1);
+        awaitDeliveries();
+
+        assertEquals(1, late.received.size());
+        assertEquals(2, getTemperature(late.received.get(0)));
+    }
+
+    @Test
+    public void unitsAreSeparateTopics() throws Exception {
+        RecordingSubscriber celsius = subscribe(Long.MAX_VALUE);
+
+        feed.publish(LOCATION, "f", Fixtures.channel(LOCATION, 50));
+        awaitDeliveries();
+
+        assertTrue(celsius.received.isEmpty());
+    }
+
+    @Test
+    public void forgetsLocationWhenLastSubscriberCancels() throws Exception {
+        int topics = feed.getTopicCount();
+        RecordingSubscriber first = subscribe(Long.MAX_VALUE);
+        RecordingSubscriber second = subscribe(Long.MAX_VALUE);
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+        awaitDeliveries();
+
+        first.subscription.cancel();
+        assertEquals(topics + 1, feed.getTopicCount());
+        second.subscription.cancel();
+        assertEquals(topics, feed.getTopicCount());
+        assertEquals(0, feed.getSubscriberCount(LOCATION, "c"));
+
+        // nothing is replayed from a forgotten location
+        RecordingSubscriber next = subscribe(Long.MAX_VALUE);
+        awaitDeliveries();
+        assertTrue(next.received.isEmpty());
+    }
+
+    @Test
+    public void keepsLocationUntilRunningRefreshEnds() throws Exception {
+        int topics = feed.getTopicCount();
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+
+        feed.refresh(LOCATION, "c");
+        subscriber.subscription.cancel();
+        assertEquals(topics + 1, feed.getTopicCount());
+
+        // a subscriber joining meanwhile gets the running refresh's result
+        RecordingSubscriber joined = subscribe(Long.MAX_VALUE);
+        feed.refresh(LOCATION, "c");
+        provider.release.countDown();
+        awaitRefresh();
+        awaitDeliveries();
+
+        assertEquals(1, provider.calls);
+        assertEquals(1, joined.received.size());
+        assertTrue(subscriber.received.isEmpty());
+
+        joined.subscription.cancel();
+        assertEquals(topics, feed.getTopicCount());
+    }
+
+    @Test
+    public void forgetsLocationRefreshedWithoutSubscribers() throws Exception {
+        int topics = feed.getTopicCount();
+
+        feed.refresh(LOCATION, "c");
+        assertEquals(topics + 1, feed.getTopicCount());
+        provider.release.countDown();
+        awaitRefresh();
+
+        assertEquals(topics, feed.getTopicCount());
+    }
+
+    @Test
+    public void publishWithoutSubscribersKeepsNothing() throws Exception {
+        int topics = feed.getTopicCount();
+
+        feed.publish(LOCATION, "c", Fixtures.channel(LOCATION, 1));
+
+        assertEquals(topics, feed.getTopicCount());
+    }
+
+    private RecordingSubscriber subscribe(long demand) throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(demand);
+        feed.forLocation(LOCATION, "c").subscribe(subscriber);
+        awaitDeliveries();
+        return subscriber;
+    }
+
+    private void awaitRefresh() throws Exception {
+        assertTrue(provider.finished.await(5, TimeUnit.SECONDS));
+
+        // the service hands the result over from its network thread once the provider returned
+        while (TaskScheduler.getInstance().getActiveCount(Pool.NETWORK) > 0) {
+            Thread.sleep(5);
+        }
+        // and the feed publishes it on the main thread
+        awaitDeliveries();
+    }
+
+    private static void awaitDeliveries() throws Exception {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    private static int getTemperature(Result<Channel> result) {
+        return result.getValue().getItem().getCondition().getTemperature();
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Result<Channel>> {
+        private final long demand;
+        final List<Result<Channel>> received = new ArrayList<>();
+        Flow.Subscription subscription;
+
+        RecordingSubscriber(long demand) {
+            this.demand = demand;
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (demand > 0) {
+                subscription.request(demand);
+            }
+        }
+
+        @Override
+        public void onNext(Result<Channel> item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            throw new AssertionError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            throw new AssertionError("Completed");
+        }
+    }
+
+    /**
+     * Answers once released, with a new channel or a failure.
+     */
+    private static class GatedProvider implements WeatherProvider {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean fail = false;
+        volatile int calls = 0;
+
+        @Override
+        public String getName() {
+            return "gated";
+        }
+
+        @Override
+        public Channel fetch(String location, String temperatureUnit) throws Exception {
+            calls++;
+            try {
+                release.await();
+                if (fail) {
+                    throw new ServiceException(ServiceException.Kind.NETWORK, "Connection reset");
+                }
+                return Fixtures.channel(location, 20);
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net.firstweather.app.weatherapp.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import net.firstweather.app.weatherapp.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Conditional GETs against a local stand-in that validates like Yahoo and Google do.
+ */
+public class HttpClientTest {
+    private static final String BODY = "{\"query\":{\"count\":1,\"results\":{\"channel\":{\"location\":{\"city\":\"Warsaw\"}}}}}";
+
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private final List<String> ifModifiedSince = new CopyOnWriteArrayList<>();
+
+    private volatile String etag = "\"v1\"";
+    private volatile String lastModified = null;
+    private volatile String body = BODY;
+
+    private StubServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+                String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                ifNoneMatch.add(String.valueOf(validator));
+                ifModifiedSince.add(String.valueOf(since));
+
+                boolean unchanged = (etag != null && etag.equals(validator))
+                        || (etag == null && lastModified != null && lastModified.equals(since));
+                if (unchanged) {
+                    StubServer.respondEmpty(exchange, HttpURLConnection.HTTP_NOT_MODIFIED);
+                    return;
+                }
+
+                if (etag != null) {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                }
+                if (lastModified != null) {
+                    exchange.getResponseHeaders().set("Last-Modified", lastModified);
+                }
+                StubServer.respond(exchange, HttpURLConnection.HTTP_OK, body);
+            }
+        });
+        client = new HttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void replaysBodyOnNotModified() throws IOException {
+        String url = server.url("/weather?q=warsaw");
+
+        HttpClient.Response first = client.get(url);
+        assertFalse(first.isNotModified());
+        assertEquals(BODY, read(first));
+
+        HttpClient.Response second = client.get(url);
+        assertTrue(second.isNotModified());
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, second.getStatusCode());
+        assertEquals(BODY, read(second));
+
+        assertEquals("null", ifNoneMatch.get(0));
+        assertEquals("\"v1\"", ifNoneMatch.get(1));
+        assertEquals(2, client.getRequestCount());
+        assertEquals(1, client.getNotModifiedCount());
+    }
+
+    @Test
+    public void sendsIfModifiedSinceWithoutETag() throws IOException {
+        etag = null;
+        lastModified = "Fri, 02 Jun 2017 18:37:21 GMT";
+        String url = server.url("/weather?q=krakow");
+
+        read(client.get(url));
+        HttpClient.Response second = client.get(url);
+
+        assertTrue(second.isNotModified());
+        assertEquals(BODY, read(second));
+        assertEquals(lastModified, ifModifiedSince.get(1));
+    }
+
+    @Test
+    public void storesChangedBody() throws IOException {
+        String url = server.url("/weather?q=lodz");
+        read(client.get(url));
+
+        etag = "\"v2\"";
+        body = BODY.replace("Warsaw", "Lodz");
+
+        HttpClient.Response changed = client.get(url);
+        assertFalse(changed.isNotModified());
+        assertEquals(body, read(changed));
+
+        HttpClient.Response replayed = client.get(url);
+        assertTrue(replayed.isNotModified());
+        assertEquals(body, read(replayed));
+        assertEquals("\"v2\"", ifNoneMatch.get(2));
+    }
+
+    @Test
+    public void remembersWholeBodyOfPartiallyParsedResponse() throws IOException {
+        String url = server.url("/weather?q=gdansk");
+
+        HttpClient.Response partial = client.get(url);
+        assertEquals('{', partial.getBody().read());
+        // like a parser that stops early, close reads the rest
+        partial.close();
+
+        HttpClient.Response second = client.get(url);
+        assertTrue(second.isNotModified());
+        assertEquals(BODY, read(second));
+    }
+
+    @Test
+    public void validatorsArePerEndpoint() throws IOException {
+        read(client.get(server.url("/weather?q=poznan")));
+        HttpClient.Response other = client.get(server.url("/weather?q=torun"));
+
+        assertFalse(other.isNotModified());
+        read(other);
+        assertEquals("null", ifNoneMatch.get(1));
+    }
+
+    @Test
+    public void countsCompressedBytes() throws IOException {
+        HttpClient.Response response = client.get(server.url("/weather?q=lublin"));
+        read(response);
+
+        assertTrue(response.getBytesOnWire() > 0);
+        assertEquals(response.getBytesOnWire(), client.getBytesOnWire());
+    }
+
+    private static String read(HttpClient.Response response) throws IOException {
+        try {
+            InputStream input = response.getBody();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentMapTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Fixtures.createDirectory();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        awaitDisk();
+        Fixtures.delete(directory);
+    }
+
+    @Test
+    public void keepsEntriesAcrossInstances() throws Exception {
+        new WoeidIndex(new File(directory, "woeid.data")).put("Portland, OR", "2475687");
+        awaitDisk();
+
+        WoeidIndex reopened = new WoeidIndex(new File(directory, "woeid.data"));
+        assertEquals("2475687", reopened.get("  portland,   or "));
+        assertNull(reopened.get("Portland, ME"));
+
+        // written through a temporary file that is gone once it replaced the index
+        assertArrayEquals(new String[]{"woeid.data"}, directory.list());
+    }
+
+    @Test
+    public void peekDoesNotWaitForTheFile() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        blockDisk(release);
+
+        try {
+            ReverseGeocodingCache cache = new ReverseGeocodingCache(new File(directory, "geocoding.data"));
+
+            long startedAt = System.nanoTime();
+            assertNull(cache.get(52.23, 21.01));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 100);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void getWaitsForTheFile() throws Exception {
+        new WoeidIndex(new File(directory, "woeid.data")).put("Warsaw", "523920");
+        awaitDisk();
+
+        final CountDownLatch release = new CountDownLatch(1);
+        blockDisk(release);
+
+        WoeidIndex reopened = new WoeidIndex(new File(directory, "woeid.data"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }
+        }).start();
+
+        // would be null if it did not wait for the blocked DISK pool to read the file
+        assertEquals("523920", reopened.get("Warsaw"));
+    }
+
+    @Test
+    public void oneInstancePerDirectory() throws Exception {
+        File other = Fixtures.createDirectory();
+
+        try {
+            assertSame(WoeidIndex.getInstance(directory), WoeidIndex.getInstance(directory));
+            assertNotSame(WoeidIndex.getInstance(directory), WoeidIndex.getInstance(other));
+            assertNotSame(ReverseGeocodingCache.getInstance(directory), ReverseGeocodingCache.getInstance(other));
+        } finally {
+            awaitDisk();
+            Fixtures.delete(other);
+        }
+    }
+
+    /**
+     * Waits for everything queued on the single DISK thread so far.
+     */
+    private static void awaitDisk() throws Exception {
+        new Task<Void>() {
+            @Override
+            protected Void doInBackground() {
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result, Exception error) {
+            }
+        }.execute(Pool.DISK, CancellationToken.NONE).get();
+    }
+
+    private static void blockDisk(final CountDownLatch release) {
+        new Task<Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                release.await();
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result, Exception error) {
+            }
+        }.execute(Pool.DISK, CancellationToken.NONE);
+    }
+}
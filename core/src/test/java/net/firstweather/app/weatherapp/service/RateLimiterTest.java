@@ -0,0 +1,178 @@
+package net.firstweather.app.weatherapp.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * One permit a second. Only the fake clock lets time pass, so a permit is only ever free when
+ * a test advanced the clock for it.
+ */
+public class RateLimiterTest {
+    private static final String KEY = "key";
+
+    private final FakeClock clock = new FakeClock();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+
+    private RateLimiter limiter;
+
+    @Before
+    public void setUp() {
+        limiter = new RateLimiter(1, 2, clock);
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void refillsAtRateUpToBurst() {
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        assertFalse(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+
+        clock.advance(999, TimeUnit.MILLISECONDS);
+        assertFalse(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+
+        // an idle key saves up no more than the burst
+        clock.advance(1, TimeUnit.HOURS);
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        assertFalse(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+
+        // every key has a bucket of its own
+        assertTrue(limiter.tryAcquire("other", RateLimiter.Priority.FOREGROUND));
+    }
+
+    @Test
+    public void waitsForClockNotRealTime() throws Exception {
+        drain();
+
+        Future<?> waiting = acquire("waiting", RateLimiter.Priority.FOREGROUND, 5000);
+        awaitQueueDepth(1);
+
+        // a second of real time is nothing to the fake clock
+        Thread.sleep(1100);
+        assertFalse(waiting.isDone());
+
+        clock.advance(1, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(3, limiter.getAdmittedCount(RateLimiter.Priority.FOREGROUND));
+        assertEquals(1000, limiter.getMaxWaitMillis(RateLimiter.Priority.FOREGROUND));
+    }
+
+    @Test
+    public void admitsForegroundBeforeWaitingBackground() throws Exception {
+        drain();
+
+        Future<?> background = acquire("background", RateLimiter.Priority.BACKGROUND, 10000);
+        awaitQueueDepth(1);
+        Future<?> foreground = acquire("foreground", RateLimiter.Priority.FOREGROUND, 10000);
+        awaitQueueDepth(2);
+
+        // nor does a foreground request trying its luck jump the waiting one
+        assertFalse(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+
+        clock.advance(1, TimeUnit.SECONDS);
+        foreground.get(5, TimeUnit.SECONDS);
+        assertEquals(1, limiter.getQueueDepth());
+        assertFalse(background.isDone());
+
+        clock.advance(1, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+
+        assertEquals(0, limiter.getQueueDepth());
+        synchronized (admitted) {
+            assertEquals("[foreground, background]", admitted.toString());
+        }
+    }
+
+    @Test
+    public void rejectsAtOnceWhenPermitIsNotFreeInTime() throws Exception {
+        drain();
+
+        Future<?> waiting = acquire("waiting", RateLimiter.Priority.FOREGROUND, 5000);
+        awaitQueueDepth(1);
+
+        // behind the waiting request the next permit is two seconds away
+        try {
+            limiter.acquire(KEY, RateLimiter.Priority.FOREGROUND, 1500);
+            fail("Admitted without a permit");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.REJECTED, e.getKind());
+        }
+        assertEquals(1, limiter.getRejectedCount(RateLimiter.Priority.FOREGROUND));
+
+        clock.advance(1, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void timesOutOnClock() throws Exception {
+        limiter = new RateLimiter(0.5, 1, clock);
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.BACKGROUND));
+
+        try {
+            limiter.acquire(KEY, RateLimiter.Priority.BACKGROUND, 1999);
+            fail("Admitted without a permit");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.REJECTED, e.getKind());
+        }
+
+        Future<?> waiting = acquire("waiting", RateLimiter.Priority.BACKGROUND, 2000);
+        awaitQueueDepth(1);
+        clock.advance(2, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, limiter.getRejectedCount(RateLimiter.Priority.BACKGROUND));
+        assertEquals(2, limiter.getAdmittedCount(RateLimiter.Priority.BACKGROUND));
+    }
+
+    /**
+     * Takes the burst, so the next permit is a second away.
+     */
+    private void drain() {
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+        assertTrue(limiter.tryAcquire(KEY, RateLimiter.Priority.FOREGROUND));
+    }
+
+    private Future<?> acquire(final String name, final RateLimiter.Priority priority, final long timeout) {
+        return callers.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                limiter.acquire(KEY, priority, timeout);
+                admitted.add(name);
+                return null;
+            }
+        });
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getQueueDepth() != depth) {
+            if (System.nanoTime() > deadline) {
+                fail("Queue depth " + limiter.getQueueDepth() + ", expected " + depth);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The UPSTREAM pool is squeezed to one thread, so every test can fill it.
+ */
+public class UpstreamCallTest {
+    private static final int DEFAULT_UPSTREAM_THREADS = 32;
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws InterruptedException {
+        TaskScheduler.getInstance().setMaximumPoolSize(Pool.UPSTREAM, 1);
+
+        // attempts of earlier tests may still be winding down
+        while (TaskScheduler.getInstance().getActiveCount(Pool.UPSTREAM) > 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        TaskScheduler.getInstance().setMaximumPoolSize(Pool.UPSTREAM, DEFAULT_UPSTREAM_THREADS);
+    }
+
+    @Test
+    public void rejectsInsteadOfRunningOnCaller() throws Exception {
+        occupyUpstream();
+
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger ranOnCaller = new AtomicInteger();
+        RequestPolicy policy = new RequestPolicy();
+        policy.setDeadline(200);
+
+        long startedAt = System.nanoTime();
+        try {
+            new UpstreamCall<>(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    if (Thread.currentThread() == caller) {
+                        ranOnCaller.incrementAndGet();
+                        // what running on the caller used to mean: blocked past the deadline
+                        Thread.sleep(1000);
+                    }
+                    return "answer";
+                }
+            }, policy, new LatencyTracker()).call();
+            fail("Ran with every upstream thread busy");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.REJECTED, e.getKind());
+        }
+
+        assertEquals(0, ranOnCaller.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < policy.getDeadline());
+    }
+
+    @Test
+    public void slowPrimaryGoesOnWithoutHedge() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        RequestPolicy policy = new RequestPolicy();
+        policy.setDeadline(2000);
+        policy.setDefaultHedgeDelay(20);
+        policy.setMinHedgeDelay(20);
+
+        String answer = new UpstreamCall<>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                attempts.incrementAndGet();
+                // slow enough to be hedged, the hedge finds no thread free
+                Thread.sleep(200);
+                return "answer";
+            }
+        }, policy, new LatencyTracker()).call();
+
+        assertEquals("answer", answer);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void compositeRejectsWithoutFreeThread() throws Exception {
+        occupyUpstream();
+
+        CompositeWeatherProvider composite = new CompositeWeatherProvider(Arrays.asList(
+                new NamedProvider("first"), new NamedProvider("second")));
+
+        try {
+            composite.fetch("Warsaw", "c");
+            fail("Fetched with every upstream thread busy");
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.REJECTED, e.getKind());
+        }
+    }
+
+    /**
+     * Takes the only UPSTREAM thread until the test ends.
+     */
+    private void occupyUpstream() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final RequestPolicy policy = new RequestPolicy();
+        policy.setHedgingEnabled(false);
+        policy.setDeadline(10000);
+
+        Future<?> occupant = callers.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                while (true) {
+                    try {
+                        return new UpstreamCall<>(new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                started.countDown();
+                                release.await();
+                                return "occupant";
+                            }
+                        }, policy, new LatencyTracker()).call();
+                    } catch (ServiceException e) {
+                        // the thread an earlier attempt ran on is not back waiting for work yet
+                        if (e.getKind() != ServiceException.Kind.REJECTED) {
+                            throw e;
+                        }
+                        Thread.sleep(5);
+                    }
+                }
+            }
+        });
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertFalse(occupant.isDone());
+    }
+
+    private static class NamedProvider implements WeatherProvider {
+        private final String name;
+
+        NamedProvider(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Channel fetch(String location, String temperatureUnit) {
+            throw new AssertionError("Asked " + name + " without a thread for it");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package net.firstweather.app.weatherapp.service;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.data.BinaryChannelCodec;
+import net.firstweather.app.weatherapp.data.Channel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WeatherCacheServiceTest {
+    private File directory;
+    private WeatherCacheService cacheService;
+    private Channel channel;
+    private String unit;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Fixtures.createDirectory();
+
+        cacheService = new WeatherCacheService(directory);
+        channel = Fixtures.channel();
+        unit = channel.getUnits().getTemperature();
+    }
+
+    @After
+    public void tearDown() {
+        Fixtures.delete(directory);
+    }
+
+    @Test
+    public void getFreshReadsDiskAfterColdStart() throws IOException {
+        String location = "Warsaw";
+        Fixtures.writeCacheFile(directory, location, channel, System.currentTimeMillis());
+
+        assertNull(cacheService.peekFresh(location, unit));
+        assertNotNull(cacheService.getFresh(location, unit));
+        // and now it is in memory
+        assertNotNull(cacheService.peekFresh(location, unit));
+    }
+
+    @Test
+    public void getFreshSkipsExpiredDiskEntry() throws IOException {
+        String location = "Warsaw";
+        Fixtures.writeCacheFile(directory, location, channel, System.currentTimeMillis() - 2 * WeatherCacheService.DEFAULT_TIME_TO_LIVE);
+
+        assertNull(cacheService.getFresh(location, unit));
+    }
+
+    @Test
+    public void getFreshSkipsOtherUnit() throws IOException {
+        String location = "Warsaw";
+        Fixtures.writeCacheFile(directory, location, channel, System.currentTimeMillis());
+
+        assertNull(cacheService.getFresh(location, "c".equalsIgnoreCase(unit) ? "f" : "c"));
+    }
+
+    @Test
+    public void getFreshTreatsCorruptFileAsMiss() throws IOException {
+        String location = "Warsaw";
+        File file = cacheFile(location);
+        assertTrue(file.getParentFile().mkdirs() || file.getParentFile().isDirectory());
+
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(new byte[]{1, 2, 3});
+        } finally {
+            output.close();
+        }
+
+        assertNull(cacheService.getFresh(location, unit));
+    }
+
+    @Test
+    public void saveReplacesFileWithoutLeavingTemporaries() throws Exception {
+        String location = "Warsaw";
+
+        cacheService.save(location, channel).get();
+        cacheService.markStale(location);
+        cacheService.save(location, Fixtures.channel()).get();
+
+        String[] names = cacheFile(location).getParentFile().list();
+        assertArrayEquals(new String[]{cacheFile(location).getName()}, names);
+    }
+
+    @Test
+    public void servicesOverOtherDirectoriesDoNotShareMemory() throws Exception {
+        File other = Fixtures.createDirectory();
+        try {
+            cacheService.save("Warsaw", channel).get();
+
+            assertNull(new WeatherCacheService(other).getFresh("Warsaw", unit));
+        } finally {
+            Fixtures.delete(other);
+        }
+    }
+
+    @Test
+    public void servicesHandedOneStoreShareMemory() throws Exception {
+        ForecastStore memory = WeatherCacheService.newMemory();
+        WeatherCacheService first = new WeatherCacheService(directory, new BinaryChannelCodec(), memory);
+        WeatherCacheService second = new WeatherCacheService(directory, new BinaryChannelCodec(), memory);
+
+        first.save("Warsaw", channel).get();
+
+        assertSame(channel, second.peekFresh("Warsaw", unit));
+    }
+
+    private File cacheFile(String location) throws IOException {
+        return new File(new File(directory, "weather"),
+                URLEncoder.encode(WeatherCacheService.normalize(location), "UTF-8") + ".data");
+    }
+}
@@ -0,0 +1,206 @@
+package net.firstweather.app.weatherapp.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.StubServer;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.ResultCallback;
+import net.firstweather.app.weatherapp.task.CancellationToken;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Many screens asking for many locations at once, against a local stand-in for Yahoo that answers
+ * every query with the place it was asked about. Every request must get its own location's
+ * forecast, once, and nothing after its screen went away.
+ */
+public class WeatherServiceStressTest {
+    private static final int LOCATIONS = 40;
+    private static final int SCREENS = 3; // each asks for every location, 120 requests
+    private static final Pattern PLACE = Pattern.compile("text=\"([^\"]+)\"");
+
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    // holds the upstream's answers back while the test sets something up
+    private final CountDownLatch upstreamGate = new CountDownLatch(1);
+    private StubServer server;
+    private YahooWeatherProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                upstreamRequests.incrementAndGet();
+
+                Matcher place = PLACE.matcher(URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8"));
+                if (!place.find()) {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "{}");
+                    return;
+                }
+
+                try {
+                    upstreamGate.await();
+                    // long enough for the requests to overlap
+                    Thread.sleep(20);
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_OK, Fixtures.response(place.group(1), temperatureOf(place.group(1))));
+                } catch (Exception e) {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, "{}");
+                }
+            }
+        }, 16);
+
+        provider = new YahooWeatherProvider();
+        provider.setEndpoint(server.url("/v1/public/yql"));
+        provider.setRateLimiter(null);
+        provider.setCircuitBreaker(new CircuitBreaker("stub"));
+    }
+
+    @After
+    public void tearDown() {
+        upstreamGate.countDown();
+        server.stop();
+    }
+
+    @Test
+    public void everyRequestGetsItsOwnLocation() throws Exception {
+        upstreamGate.countDown();
+
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations.add("Location " + i);
+        }
+
+        final Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+        final List<String> misattributed = new ArrayList<>();
+        final CountDownLatch delivered = new CountDownLatch(LOCATIONS * SCREENS);
+        List<ResultFuture<Channel>> futures = new ArrayList<>();
+        List<String> requested = new ArrayList<>();
+
+        for (int screen = 0; screen < SCREENS; screen++) {
+            WeatherService service = new WeatherService(provider);
+            service.setCancellationToken(new CancellationToken());
+
+            for (final String location : locations) {
+                final String request = screen + ":" + location;
+                deliveries.put(request, new AtomicInteger());
+
+                futures.add(service.refreshWeather(location, "c", new ResultCallback<Channel>() {
+                    @Override
+                    public void onResult(Result<Channel> result) {
+                        deliveries.get(request).incrementAndGet();
+                        if (!result.isSuccess() || !isFor(result.getValue(), location)) {
+                            synchronized (misattributed) {
+                                misattributed.add(request + " got " + describe(result));
+                            }
+                        }
+                        delivered.countDown();
+                    }
+                }));
+                requested.add(location);
+            }
+        }
+
+        assertTrue("Callbacks missing", delivered.await(30, TimeUnit.SECONDS));
+        assertTrue(misattributed.toString(), misattributed.isEmpty());
+
+        for (int i = 0; i < futures.size(); i++) {
+            Result<Channel> result = futures.get(i).get(0, TimeUnit.SECONDS);
+            assertTrue(describe(result), result.isSuccess());
+            assertTrue(requested.get(i) + " got " + describe(result), isFor(result.getValue(), requested.get(i)));
+        }
+
+        for (Map.Entry<String, AtomicInteger> entry : deliveries.entrySet()) {
+            assertEquals(entry.getKey(), 1, entry.getValue().get());
+        }
+
+        // the screens shared the fetch of every location they asked for at the same time
+        assertTrue(upstreamRequests.get() + " upstream requests", upstreamRequests.get() <= LOCATIONS * SCREENS);
+        assertTrue(upstreamRequests.get() + " upstream requests", upstreamRequests.get() >= LOCATIONS);
+    }
+
+    @Test
+    public void cancelledScreenGetsNothing() throws Exception {
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations.add("Location " + i);
+        }
+
+        CancellationToken goneToken = new CancellationToken();
+        WeatherService gone = new WeatherService(provider);
+        gone.setCancellationToken(goneToken);
+        WeatherService staying = new WeatherService(provider);
+        staying.setCancellationToken(new CancellationToken());
+
+        final AtomicInteger goneDeliveries = new AtomicInteger();
+        final CountDownLatch stayingDelivered = new CountDownLatch(LOCATIONS);
+        final List<String> misattributed = new ArrayList<>();
+        List<ResultFuture<Channel>> goneFutures = new ArrayList<>();
+
+        for (final String location : locations) {
+            goneFutures.add(gone.refreshWeather(location, "c", new ResultCallback<Channel>() {
+                @Override
+                public void onResult(Result<Channel> result) {
+                    goneDeliveries.incrementAndGet();
+                }
+            }));
+            staying.refreshWeather(location, "c", new ResultCallback<Channel>() {
+                @Override
+                public void onResult(Result<Channel> result) {
+                    if (!result.isSuccess() || !isFor(result.getValue(), location)) {
+                        synchronized (misattributed) {
+                            misattributed.add(location + " got " + describe(result));
+                        }
+                    }
+                    stayingDelivered.countDown();
+                }
+            });
+        }
+
+        // the screen goes away while every request is still waiting for the upstream
+        goneToken.cancel();
+        upstreamGate.countDown();
+
+        assertTrue("Callbacks missing", stayingDelivered.await(30, TimeUnit.SECONDS));
+        assertTrue(misattributed.toString(), misattributed.isEmpty());
+        assertEquals(0, goneDeliveries.get());
+        for (ResultFuture<Channel> future : goneFutures) {
+            if (!future.isCancelled()) {
+                fail("A request of the cancelled screen completed");
+            }
+        }
+    }
+
+    private static boolean isFor(Channel channel, String location) {
+        return location.equals(channel.getLocation())
+                && channel.getItem().getCondition().getTemperature() == temperatureOf(location);
+    }
+
+    private static int temperatureOf(String location) {
+        return (location.hashCode() & Integer.MAX_VALUE) % 40;
+    }
+
+    private static String describe(Result<Channel> result) {
+        return result.isSuccess() ? result.getValue().getLocation() : String.valueOf(result.getError());
+    }
+}
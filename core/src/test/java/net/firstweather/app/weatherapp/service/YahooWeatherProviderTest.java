@@ -0,0 +1,213 @@
+package net.firstweather.app.weatherapp.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import net.firstweather.app.weatherapp.Fixtures;
+import net.firstweather.app.weatherapp.StubServer;
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.listener.KeyedResultCallback;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Batched queries against a local stand-in for Yahoo that resolves every place it is asked
+ * about to a fixed woeid, and answers with the channels in reverse order.
+ */
+public class YahooWeatherProviderTest {
+    private static final Pattern PLACE = Pattern.compile("text=\"([^\"]+)\"");
+    private static final Pattern WOEIDS = Pattern.compile("woeid in \\(([\\d,]+)\\)");
+
+    // place asked about -> city and woeid of its channel
+    private final Map<String, String[]> places = new HashMap<>();
+    private final List<List<String>> queries = Collections.synchronizedList(new ArrayList<List<String>>());
+
+    private StubServer server;
+    private File directory;
+    private WoeidIndex woeidIndex;
+    private YahooWeatherProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        places.put("Portland, OR", new String[]{"Portland", "2475687"});
+        places.put("Portland, ME", new String[]{"Portland", "2475688"});
+        places.put("Warszawa", new String[]{"Warsaw", "523920"});
+        places.put("Cracow", new String[]{"Krakow", "502075"});
+        places.put("Krakow", new String[]{"Krakow", "502075"});
+
+        server = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+                List<String> asked = new ArrayList<>();
+
+                Matcher woeids = WOEIDS.matcher(query);
+                while (woeids.find()) {
+                    for (String woeid : woeids.group(1).split(",")) {
+                        asked.add(placeOf(woeid));
+                    }
+                }
+                Matcher place = PLACE.matcher(query);
+                while (place.find()) {
+                    asked.add(place.group(1));
+                }
+                queries.add(asked);
+
+                try {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_OK, response(asked));
+                } catch (JSONException e) {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, "{}");
+                }
+            }
+        });
+
+        directory = Fixtures.createDirectory();
+        woeidIndex = WoeidIndex.getInstance(directory);
+
+        provider = new YahooWeatherProvider(woeidIndex);
+        provider.setEndpoint(server.url("/v1/public/yql"));
+        provider.setRateLimiter(null);
+        provider.setCircuitBreaker(new CircuitBreaker("stub"));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        Fixtures.delete(directory);
+    }
+
+    @Test
+    public void sameCityInDifferentRegionsIsNeverSwapped() throws Exception {
+        Map<String, Result<Channel>> results = fetchAll("Portland, OR", "Portland, ME");
+
+        // one query could not tell the two Portland channels apart
+        assertEquals(2, queries.size());
+        assertEquals("2475687", results.get("Portland, OR").getValue().getWoeid());
+        assertEquals("2475688", results.get("Portland, ME").getValue().getWoeid());
+        assertEquals("2475687", woeidIndex.get("Portland, OR"));
+        assertEquals("2475688", woeidIndex.get("Portland, ME"));
+    }
+
+    @Test
+    public void matchesLastNameSpelledDifferently() throws Exception {
+        Map<String, Result<Channel>> results = fetchAll("Warszawa", "Krakow");
+
+        assertEquals(1, queries.size());
+        assertEquals("523920", results.get("Warszawa").getValue().getWoeid());
+        assertEquals("502075", results.get("Krakow").getValue().getWoeid());
+        assertEquals("523920", woeidIndex.get("Warszawa"));
+    }
+
+    @Test
+    public void doesNotGuessBetweenNamesSpelledDifferently() throws Exception {
+        Map<String, Result<Channel>> results = fetchAll("Warszawa", "Cracow");
+
+        for (String location : Arrays.asList("Warszawa", "Cracow")) {
+            assertFalse(results.get(location).isSuccess());
+            assertEquals(ServiceException.Kind.NOT_FOUND, results.get(location).getError().getKind());
+            assertNull(woeidIndex.get(location));
+        }
+    }
+
+    @Test
+    public void answersRememberedLocationsByWoeid() throws Exception {
+        woeidIndex.put("Portland, OR", "2475687");
+
+        Map<String, Result<Channel>> results = fetchAll("Portland, OR", "Portland, ME");
+
+        assertTrue(results.get("Portland, OR").isSuccess());
+        assertEquals("2475687", results.get("Portland, OR").getValue().getWoeid());
+        assertEquals("2475688", results.get("Portland, ME").getValue().getWoeid());
+        assertEquals("2475688", woeidIndex.get("Portland, ME"));
+    }
+
+    @Test
+    public void locationThatWouldBreakQueryIsNotAsked() throws Exception {
+        String injected = "Krakow\") or text=(\"Warszawa";
+
+        Map<String, Result<Channel>> results = fetchAll("Warszawa", injected, "Cracow\\");
+
+        assertEquals(1, queries.size());
+        assertEquals(Collections.singletonList("Warszawa"), queries.get(0));
+        assertEquals("523920", results.get("Warszawa").getValue().getWoeid());
+        assertEquals(ServiceException.Kind.NOT_FOUND, results.get(injected).getError().getKind());
+        assertEquals(ServiceException.Kind.NOT_FOUND, results.get("Cracow\\").getError().getKind());
+
+        try {
+            provider.fetch(injected, "c");
+            fail("Asked for " + injected);
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.Kind.NOT_FOUND, e.getKind());
+        }
+        assertEquals(1, queries.size());
+    }
+
+    private Map<String, Result<Channel>> fetchAll(String... locations) throws Exception {
+        final Map<String, Result<Channel>> results = new ConcurrentHashMap<>();
+
+        provider.fetchAll(Arrays.asList(locations), "c", new KeyedResultCallback<Channel>() {
+            @Override
+            public void onResult(String key, Result<Channel> result) {
+                assertNull("Answered " + key + " twice", results.put(key, result));
+            }
+        });
+
+        assertEquals(locations.length, results.size());
+        return results;
+    }
+
+    private String placeOf(String woeid) {
+        for (Map.Entry<String, String[]> place : places.entrySet()) {
+            if (place.getValue()[1].equals(woeid)) {
+                return place.getKey();
+            }
+        }
+        throw new AssertionError("Asked for unknown woeid " + woeid);
+    }
+
+    /**
+     * A batch response with the channels of the places, last one first.
+     */
+    private String response(List<String> asked) throws IOException, JSONException {
+        JSONArray channels = new JSONArray();
+
+        for (int i = asked.size() - 1; i >= 0; i--) {
+            String[] place = places.get(asked.get(i));
+            JSONObject channel = new JSONObject(Fixtures.response(place[0], 20))
+                    .getJSONObject("query").getJSONObject("results").getJSONObject("channel");
+            channel.put("link", "https://weather.yahoo.com/country/state/city-" + place[1] + "/");
+            channels.put(channel);
+        }
+
+        JSONObject query = new JSONObject();
+        query.put("count", channels.length());
+        query.put("results", new JSONObject().put("channel", channels));
+        return new JSONObject().put("query", query).toString();
+    }
+}
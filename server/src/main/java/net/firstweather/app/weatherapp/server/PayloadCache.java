@@ -0,0 +1,56 @@
+package net.firstweather.app.weatherapp.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of serialized channels, keyed by location and unit. Entries outlive their TTL so
+ * a stale payload can still be served while the upstream is failing.
+ */
+public class PayloadCache {
+    private final LinkedHashMap<String, Payload> entries;
+
+    public PayloadCache(final int capacity) {
+        entries = new LinkedHashMap<String, Payload>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Payload> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized Payload get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Payload payload) {
+        entries.put(key, payload);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Channel.toJSON() as UTF-8, serialized once per fetch and shared by every response.
+     */
+    public static class Payload {
+        private final byte[] body;
+        private final long fetchedAt;
+        private final long timeToLive;
+
+        public Payload(byte[] body, long fetchedAt, long timeToLive) {
+            this.body = body;
+            this.fetchedAt = fetchedAt;
+            this.timeToLive = timeToLive;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public boolean isFresh(long now) {
+            return now - fetchedAt < timeToLive;
+        }
+    }
+}
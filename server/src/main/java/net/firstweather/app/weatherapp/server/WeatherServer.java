@@ -0,0 +1,446 @@
+package net.firstweather.app.weatherapp.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.firstweather.app.weatherapp.data.Channel;
+import net.firstweather.app.weatherapp.service.CircuitBreaker;
+import net.firstweather.app.weatherapp.service.CompositeWeatherProvider;
+import net.firstweather.app.weatherapp.service.RateLimiter;
+import net.firstweather.app.weatherapp.service.RequestPolicy;
+import net.firstweather.app.weatherapp.service.Result;
+import net.firstweather.app.weatherapp.service.ResultFuture;
+import net.firstweather.app.weatherapp.service.ServiceException;
+import net.firstweather.app.weatherapp.service.SingleFlight;
+import net.firstweather.app.weatherapp.service.WeatherCacheService;
+import net.firstweather.app.weatherapp.service.WeatherProvider;
+import net.firstweather.app.weatherapp.service.WoeidIndex;
+import net.firstweather.app.weatherapp.service.YahooWeatherProvider;
+import net.firstweather.app.weatherapp.task.Pool;
+import net.firstweather.app.weatherapp.task.TaskScheduler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless front for the upstream weather APIs, so app installs share one set of upstream calls.
+ *
+ *   GET /weather?location=Warsaw&unit=c
+ *
+ * answers with the cached Channel.toJSON() of the location. Every request runs on its own
+ * virtual thread; concurrent misses for one location wait for a single upstream fetch, and a
+ * stale payload is served when that fetch fails. The X-Cache header tells which of HIT, MISS,
+ * COALESCED or STALE answered.
+ *
+ *   GET /metrics
+ *
+ * answers with the request counters, and with the state, transition and rejection counts of the
+ * circuit breaker of every upstream endpoint and of their rate limiter.
+ */
+public class WeatherServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    // upstream attempts are rejected once every one of these is busy, instead of running on
+    // the request's thread outside their deadline
+    private static final int UPSTREAM_THREADS = 512;
+    // queries a configured rate limit lets through at once after a quiet spell
+    private static final int UPSTREAM_BURST = 10;
+
+    private final WeatherProvider provider;
+    private final PayloadCache cache;
+    private final long timeToLive;
+    private final SingleFlight<String, ResultFuture<PayloadCache.Payload>> flights = new SingleFlight<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final AtomicLong upstreamCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private HttpServer http;
+    private ExecutorService executor;
+
+    static {
+        // headers and body go out in separate writes; with Nagle on, small answers wait for the
+        // client's delayed ACK, about 40ms each. Read once, before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public WeatherServer(WeatherProvider provider) {
+        this(provider, DEFAULT_CAPACITY, WeatherCacheService.DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param capacity   locations kept in memory
+     * @param timeToLive milliseconds a payload is served before it is fetched again
+     */
+    public WeatherServer(WeatherProvider provider, int capacity, long timeToLive) {
+        this.provider = provider;
+        this.cache = new PayloadCache(capacity);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Usage: WeatherServer [port] [yql endpoint,...] [data directory] [upstream queries per hour]
+     *
+     * With more than one endpoint, e.g. mirrors of one's own, every fetch goes to the fastest
+     * endpoint whose circuit breaker is closed and fails over to the next one. The data directory
+     * keeps the resolved place names between runs, the working directory by default. Upstream
+     * queries are limited to the public endpoint's quota by default, 0 turns the limit off, e.g.
+     * for an endpoint of one's own.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        File dataDirectory = new File(args.length > 2 ? args[2] : ".");
+
+        if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+            throw new IOException("Could not create " + dataDirectory);
+        }
+
+        String[] endpoints = (args.length > 1 ? args[1] : YahooWeatherProvider.DEFAULT_ENDPOINT).split(",");
+        RateLimiter rateLimiter = null;
+        if (args.length > 3) {
+            double queriesPerHour = Double.parseDouble(args[3]);
+            rateLimiter = queriesPerHour > 0 ? new RateLimiter(queriesPerHour / 3600, UPSTREAM_BURST) : null;
+        }
+
+        List<YahooWeatherProvider> upstreams = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            YahooWeatherProvider upstream = new YahooWeatherProvider(WoeidIndex.getInstance(dataDirectory));
+            upstream.setEndpoint(endpoint.trim());
+            if (args.length > 3) {
+                upstream.setRateLimiter(rateLimiter);
+            }
+            upstreams.add(upstream);
+        }
+
+        WeatherProvider provider = upstreams.get(0);
+        if (upstreams.size() > 1) {
+            CompositeWeatherProvider composite = new CompositeWeatherProvider(upstreams);
+            // one endpoint at a time, the others are only asked when it fails, each within its own deadline
+            composite.setFanOut(1);
+            composite.setDeadline(upstreams.size() * new RequestPolicy().getDeadline());
+            provider = composite;
+        }
+
+        WeatherServer server = new WeatherServer(provider);
+        server.start(new InetSocketAddress(port));
+        System.out.println("Serving weather on port " + server.getPort());
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        TaskScheduler.getInstance().setMaximumPoolSize(Pool.UPSTREAM, UPSTREAM_THREADS);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // the backlog bounds connections waiting to be accepted, not requests in progress
+        http = HttpServer.create(address, 1024);
+        http.setExecutor(executor);
+        http.createContext("/weather", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleWeather(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        http.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    send(exchange, 200, "NONE", getMetrics().toString().getBytes(StandardCharsets.UTF_8));
+                } catch (JSONException e) {
+                    sendError(exchange, 500, e.getMessage());
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        http.start();
+    }
+
+    public synchronized void stop() {
+        if (http != null) {
+            http.stop(0);
+            executor.shutdownNow();
+            http = null;
+        }
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Misses that waited for another request's upstream fetch instead of starting their own.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    public long getUpstreamCount() {
+        return upstreamCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * The counters, and those of the circuit breakers and rate limiter of the Yahoo endpoints
+     * the provider asks.
+     */
+    public JSONObject getMetrics() throws JSONException {
+        JSONObject metrics = new JSONObject();
+        metrics.put("requests", getRequestCount());
+        metrics.put("hits", getHitCount());
+        metrics.put("coalesced", getCoalescedCount());
+        metrics.put("stale", getStaleCount());
+        metrics.put("upstream", getUpstreamCount());
+        metrics.put("failures", getFailureCount());
+
+        JSONObject breakers = new JSONObject();
+        RateLimiter rateLimiter = null;
+
+        for (YahooWeatherProvider upstream : getUpstreams()) {
+            CircuitBreaker circuitBreaker = upstream.getCircuitBreaker();
+
+            JSONObject transitions = new JSONObject();
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                transitions.put(state.name(), circuitBreaker.getTransitionCount(state));
+            }
+
+            JSONObject breaker = new JSONObject();
+            breaker.put("state", circuitBreaker.getState().name());
+            breaker.put("transitions", transitions);
+            breaker.put("rejected", circuitBreaker.getRejectedCount());
+            breakers.put(upstream.getEndpoint(), breaker);
+
+            // shared by the endpoints, which it counts separately
+            if (rateLimiter == null) {
+                rateLimiter = upstream.getRateLimiter();
+            }
+        }
+        metrics.put("circuitBreakers", breakers);
+
+        if (rateLimiter != null) {
+            JSONObject limiter = new JSONObject();
+            limiter.put("queueDepth", rateLimiter.getQueueDepth());
+            for (RateLimiter.Priority priority : RateLimiter.Priority.values()) {
+                JSONObject counts = new JSONObject();
+                counts.put("admitted", rateLimiter.getAdmittedCount(priority));
+                counts.put("rejected", rateLimiter.getRejectedCount(priority));
+                counts.put("maxWaitMillis", rateLimiter.getMaxWaitMillis(priority));
+                limiter.put(priority.name(), counts);
+            }
+            metrics.put("rateLimiter", limiter);
+        }
+
+        return metrics;
+    }
+
+    private List<YahooWeatherProvider> getUpstreams() {
+        List<WeatherProvider> providers = provider instanceof CompositeWeatherProvider
+                ? ((CompositeWeatherProvider) provider).getRanking()
+                : Collections.singletonList(provider);
+
+        List<YahooWeatherProvider> upstreams = new ArrayList<>();
+        for (WeatherProvider member : providers) {
+            if (member instanceof YahooWeatherProvider) {
+                upstreams.add((YahooWeatherProvider) member);
+            }
+        }
+        return upstreams;
+    }
+
+    private void handleWeather(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Only GET is supported");
+            return;
+        }
+
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        String location = parameters.get("location");
+        String unit = parameters.containsKey("unit") ? parameters.get("unit").toLowerCase(Locale.ROOT) : "c";
+
+        if (location == null || location.trim().isEmpty()) {
+            sendError(exchange, 400, "Missing location");
+            return;
+        }
+        if (!YahooWeatherProvider.isQueryable(location)) {
+            // would end up in the upstream query, under this server's quota
+            sendError(exchange, 400, "Location must not contain quotes, backslashes or control characters");
+            return;
+        }
+        if (!unit.equals("c") && !unit.equals("f")) {
+            sendError(exchange, 400, "Unit must be c or f");
+            return;
+        }
+
+        String key = unit + ":" + WeatherCacheService.normalize(location);
+
+        PayloadCache.Payload cached = cache.get(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            hitCount.incrementAndGet();
+            send(exchange, 200, "HIT", cached.getBody());
+            return;
+        }
+
+        ResultFuture<PayloadCache.Payload> waiter = new ResultFuture<>();
+        boolean leader = flights.join(key, waiter);
+        if (leader) {
+            fetch(key, location, unit);
+        } else {
+            coalescedCount.incrementAndGet();
+        }
+
+        Result<PayloadCache.Payload> result;
+        try {
+            result = waiter.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Shutting down");
+            return;
+        }
+
+        if (result.isSuccess()) {
+            send(exchange, 200, leader ? "MISS" : "COALESCED", result.getValue().getBody());
+        } else if (cached != null) {
+            // the upstream is failing, an old forecast is better than none
+            staleCount.incrementAndGet();
+            send(exchange, 200, "STALE", cached.getBody());
+        } else {
+            failureCount.incrementAndGet();
+            sendError(exchange, getStatus(result.getError()), result.getError().getMessage());
+        }
+    }
+
+    /**
+     * Runs on the leader's thread and completes every request waiting on the key.
+     */
+    private void fetch(String key, String location, String unit) {
+        Result<PayloadCache.Payload> result = null;
+
+        try {
+            PayloadCache.Payload current = cache.get(key);
+            if (current != null && current.isFresh(System.currentTimeMillis())) {
+                // the previous leader completed between the lookup and the join
+                result = Result.success(current);
+            } else {
+                result = fetchUpstream(key, location, unit);
+            }
+        } finally {
+            if (result == null) {
+                // an Error is on its way up, the waiters and the next leader must not hang on the key
+                result = Result.failure(new ServiceException(ServiceException.Kind.NETWORK, "Could not fetch " + location));
+            }
+
+            List<ResultFuture<PayloadCache.Payload>> waiters = flights.complete(key);
+            for (ResultFuture<PayloadCache.Payload> waiter : waiters) {
+                waiter.complete(result);
+            }
+        }
+    }
+
+    private Result<PayloadCache.Payload> fetchUpstream(String key, String location, String unit) {
+        upstreamCount.incrementAndGet();
+
+        try {
+            Channel channel = provider.fetch(location, unit);
+            PayloadCache.Payload payload = new PayloadCache.Payload(
+                    channel.toJSON().toString().getBytes(StandardCharsets.UTF_8), System.currentTimeMillis(), timeToLive);
+            cache.put(key, payload);
+            return Result.success(payload);
+        } catch (Exception e) {
+            return Result.failure(e);
+        }
+    }
+
+    private static int getStatus(ServiceException error) {
+        switch (error.getKind()) {
+            case NOT_FOUND:
+                return 404;
+            case TIMEOUT:
+                return 504;
+            case REJECTED:
+            case CIRCUIT_OPEN:
+                return 503;
+            default:
+                return 502;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String cacheStatus, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+        exchange.sendResponseHeaders(status, body.length);
+
+        OutputStream output = exchange.getResponseBody();
+        output.write(body);
+        output.close();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JSONObject error = new JSONObject();
+        try {
+            error.put("error", message);
+        } catch (JSONException e) {
+            // only thrown for a null key
+        }
+
+        send(exchange, status, "NONE", error.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,166 @@
+package net.firstweather.app.weatherapp.server.loadtest;
+
+import net.firstweather.app.weatherapp.server.WeatherServer;
+import net.firstweather.app.weatherapp.service.YahooWeatherProvider;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link WeatherServer} backed by a {@link StubUpstream} with closed-loop clients, each
+ * on its own virtual thread asking for random locations, and reports requests per second,
+ * latency percentiles and how many upstream queries the server needed.
+ *
+ * Usage: LoadTest [clients] [locations] [seconds] [upstream delay ms] [ttl ms]
+ */
+public class LoadTest {
+    private static final int WARMUP_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int locations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long upstreamDelay = args.length > 3 ? Long.parseLong(args[3]) : 100;
+        // short enough that misses, and so coalescing, keep happening during the run
+        long timeToLive = args.length > 4 ? Long.parseLong(args[4]) : 2000;
+
+        // the server first, it configures the JDK's HTTP server for both
+        YahooWeatherProvider provider = new YahooWeatherProvider();
+        WeatherServer server = new WeatherServer(provider, WeatherServer.DEFAULT_CAPACITY, timeToLive);
+
+        StubUpstream upstream = new StubUpstream(upstreamDelay);
+        upstream.start();
+        provider.setEndpoint(upstream.getEndpoint());
+        // the stub has no quota, the server's own coalescing is what is measured
+        provider.setRateLimiter(null);
+
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+
+        System.out.printf(Locale.ROOT, "%d clients, %d locations, %ds after %ds warmup, upstream delay %dms, ttl %dms%n",
+                clients, locations, seconds, WARMUP_SECONDS, upstreamDelay, timeToLive);
+
+        try {
+            run(server, upstream, clients, locations, seconds);
+        } finally {
+            server.stop();
+            upstream.stop();
+        }
+    }
+
+    private static void run(WeatherServer server, StubUpstream upstream, int clients, final int locations, int seconds) throws InterruptedException {
+        final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final String base = "http://127.0.0.1:" + server.getPort() + "/weather?location=City%20";
+
+        final long start = System.nanoTime();
+        final long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        final List<Samples> results = new ArrayList<>();
+        final AtomicLong errors = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>(clients);
+
+        for (int i = 0; i < clients; i++) {
+            final Samples samples = new Samples();
+            results.add(samples);
+
+            threads.add(Thread.ofVirtual().start(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + random.nextInt(locations))).build();
+                        try {
+                            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            long finished = System.nanoTime();
+
+                            if (now >= measureFrom) {
+                                if (response.statusCode() == 200) {
+                                    samples.add(finished - now);
+                                } else {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            return;
+                        } catch (Exception e) {
+                            if (now >= measureFrom) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(WARMUP_SECONDS));
+        long upstreamBefore = upstream.getQueryCount();
+        long hitsBefore = server.getHitCount();
+        long coalescedBefore = server.getCoalescedCount();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] latencies = merge(results);
+        Arrays.sort(latencies);
+
+        System.out.printf(Locale.ROOT, "requests   %d (%.1f/s), errors %d%n",
+                latencies.length, latencies.length / (double) seconds, errors.get());
+        System.out.printf(Locale.ROOT, "latency    p50 %.2fms, p99 %.2fms, p99.9 %.2fms, max %.2fms%n",
+                millis(latencies, 0.5), millis(latencies, 0.99), millis(latencies, 0.999), millis(latencies, 1.0));
+        System.out.printf(Locale.ROOT, "server     %d hits, %d coalesced misses%n",
+                server.getHitCount() - hitsBefore, server.getCoalescedCount() - coalescedBefore);
+        System.out.printf(Locale.ROOT, "upstream   %d queries%n", upstream.getQueryCount() - upstreamBefore);
+    }
+
+    private static long[] merge(List<Samples> results) {
+        int count = 0;
+        for (Samples samples : results) {
+            count += samples.size;
+        }
+
+        long[] merged = new long[count];
+        int offset = 0;
+        for (Samples samples : results) {
+            System.arraycopy(samples.values, 0, merged, offset, samples.size);
+            offset += samples.size;
+        }
+        return merged;
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Latencies of one client, only ever touched by its own thread until it is joined.
+     */
+    private static class Samples {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.firstweather.app.weatherapp.server.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the YQL endpoint: answers every query with the same recorded response
+ * after a fixed delay, and counts the queries it was sent.
+ */
+public class StubUpstream {
+    private static final String PATH = "/v1/public/yql";
+
+    private final byte[] response;
+    private final long delay;
+    private final AtomicLong queryCount = new AtomicLong();
+
+    private HttpServer http;
+    private ExecutorService executor;
+
+    /**
+     * @param delay milliseconds every answer takes, the upstream's latency
+     */
+    public StubUpstream(long delay) throws IOException {
+        this.response = load("/payloads/projected.json");
+        this.delay = delay;
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        http.setExecutor(executor);
+        http.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                queryCount.incrementAndGet();
+                try {
+                    Thread.sleep(delay);
+
+                    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                    exchange.sendResponseHeaders(200, response.length);
+                    OutputStream output = exchange.getResponseBody();
+                    output.write(response);
+                    output.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        http.start();
+    }
+
+    public void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + http.getAddress().getPort() + PATH;
+    }
+
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    private static byte[] load(String resource) throws IOException {
+        InputStream input = StubUpstream.class.getResourceAsStream(resource);
+        if (input == null) {
+            throw new IOException("No resource " + resource);
+        }
+
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
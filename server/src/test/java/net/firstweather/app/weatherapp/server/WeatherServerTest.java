@@ -0,0 +1,74 @@
+package net.firstweather.app.weatherapp.server;
+
+import net.firstweather.app.weatherapp.server.loadtest.StubUpstream;
+import net.firstweather.app.weatherapp.service.CircuitBreaker;
+import net.firstweather.app.weatherapp.service.YahooWeatherProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The server in front of a stub upstream that answers every query at once.
+ */
+public class WeatherServerTest {
+    private StubUpstream upstream;
+    private WeatherServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        upstream = new StubUpstream(0);
+        upstream.start();
+
+        YahooWeatherProvider provider = new YahooWeatherProvider();
+        provider.setEndpoint(upstream.getEndpoint());
+        provider.setRateLimiter(null);
+        provider.setCircuitBreaker(new CircuitBreaker("stub"));
+
+        server = new WeatherServer(provider);
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        upstream.stop();
+    }
+
+    @Test
+    public void answersLocation() throws IOException {
+        assertEquals(200, get("Warsaw"));
+        assertEquals(1, upstream.getQueryCount());
+    }
+
+    @Test
+    public void rejectsLocationThatWouldBreakUpstreamQuery() throws IOException {
+        assertEquals(400, get("Warsaw\") or text=(\"Krakow"));
+        assertEquals(400, get("Warsaw\\"));
+        assertEquals(400, get("Warsaw\n"));
+
+        assertEquals(0, upstream.getQueryCount());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    private int get(String location) throws IOException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/weather?location="
+                + URLEncoder.encode(location, StandardCharsets.UTF_8));
+
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}